@@ -41,6 +41,36 @@ public class Main {
             System.getProperty("user.home") + "/.qwen_cli_history.json");
         props.setHistoryFile(historyFile);
 
+        String historySizeStr = System.getProperty("app.historySize", "10000");
+        try {
+            props.setHistorySize(Integer.parseInt(historySizeStr));
+        } catch (NumberFormatException e) {
+            props.setHistorySize(10000);
+        }
+
+        String historyMaxAgeStr = System.getProperty("app.historyMaxAgeDays", "0");
+        try {
+            props.setHistoryMaxAgeDays(Integer.parseInt(historyMaxAgeStr));
+        } catch (NumberFormatException e) {
+            props.setHistoryMaxAgeDays(0);
+        }
+
+        String historyArchiveStr = System.getProperty("app.historyArchive", "false");
+        props.setHistoryArchive(Boolean.parseBoolean(historyArchiveStr));
+
+        String compressAnswersStr = System.getProperty("app.compressAnswers", "true");
+        props.setCompressAnswers(Boolean.parseBoolean(compressAnswersStr));
+
+        String compressionDictionaryStr = System.getProperty("app.compressionDictionary", "true");
+        props.setCompressionDictionary(Boolean.parseBoolean(compressionDictionaryStr));
+
+        String similarityStr = System.getProperty("app.similarityThreshold", "0.85");
+        try {
+            props.setSimilarityThreshold(Double.parseDouble(similarityStr));
+        } catch (NumberFormatException e) {
+            props.setSimilarityThreshold(0.85);
+        }
+
         String contextLengthStr = System.getProperty("app.contextLength", "6");
         try {
             props.setContextLength(Integer.parseInt(contextLengthStr));
@@ -48,6 +78,19 @@ public class Main {
             props.setContextLength(6);
         }
 
+        String contextTokensStr = System.getProperty("app.contextTokens", "8000");
+        try {
+            props.setContextTokens(Integer.parseInt(contextTokensStr));
+        } catch (NumberFormatException e) {
+            props.setContextTokens(8000);
+        }
+
+        String contextSummaryStr = System.getProperty("app.contextSummary", "false");
+        props.setContextSummary(Boolean.parseBoolean(contextSummaryStr));
+
+        String summaryModel = System.getProperty("app.summaryModel", "");
+        props.setSummaryModel(summaryModel);
+
         String parallelStr = System.getProperty("app.parallel", "false");
         props.setParallel(Boolean.parseBoolean(parallelStr));
 
@@ -64,6 +107,22 @@ public class Main {
         String systemMessage = System.getProperty("app.systemMessage", "You are a helpful assistant.");
         props.setSystemMessage(systemMessage);
 
+        String renderer = System.getProperty("app.renderer", "bat");
+        props.setRenderer(renderer);
+
+        String streamingStr = System.getProperty("app.streaming", "true");
+        props.setStreaming(Boolean.parseBoolean(streamingStr));
+
+        String answerServerStr = System.getProperty("app.answerServer", "false");
+        props.setAnswerServer(Boolean.parseBoolean(answerServerStr));
+
+        String answerServerPortStr = System.getProperty("app.answerServerPort", "0");
+        try {
+            props.setAnswerServerPort(Integer.parseInt(answerServerPortStr));
+        } catch (NumberFormatException e) {
+            props.setAnswerServerPort(0);
+        }
+
         return props;
     }
 
@@ -84,6 +143,50 @@ public class Main {
         // Load model from system property or use default
         String model = System.getProperty("dashscope.model", "qwen-plus");
         props.setModel(model);
+
+        String timeoutStr = System.getProperty("dashscope.requestTimeoutSeconds", "120");
+        try {
+            props.setRequestTimeoutSeconds(Integer.parseInt(timeoutStr));
+        } catch (NumberFormatException e) {
+            props.setRequestTimeoutSeconds(120);
+        }
+
+        String requestsPerMinuteStr = System.getProperty("dashscope.requestsPerMinute", "0");
+        try {
+            props.setRequestsPerMinute(Integer.parseInt(requestsPerMinuteStr));
+        } catch (NumberFormatException e) {
+            props.setRequestsPerMinute(0);
+        }
+
+        String tokensPerMinuteStr = System.getProperty("dashscope.tokensPerMinute", "0");
+        try {
+            props.setTokensPerMinute(Integer.parseInt(tokensPerMinuteStr));
+        } catch (NumberFormatException e) {
+            props.setTokensPerMinute(0);
+        }
+
+        String maxConcurrencyStr = System.getProperty("dashscope.maxConcurrency", "16");
+        try {
+            props.setMaxConcurrency(Integer.parseInt(maxConcurrencyStr));
+        } catch (NumberFormatException e) {
+            props.setMaxConcurrency(16);
+        }
+
+        String maxRetriesStr = System.getProperty("dashscope.maxRetries", "2");
+        try {
+            props.setMaxRetries(Integer.parseInt(maxRetriesStr));
+        } catch (NumberFormatException e) {
+            props.setMaxRetries(2);
+        }
+
+        String retryBaseDelayStr = System.getProperty("dashscope.retryBaseDelayMillis", "500");
+        try {
+            props.setRetryBaseDelayMillis(Integer.parseInt(retryBaseDelayStr));
+        } catch (NumberFormatException e) {
+            props.setRetryBaseDelayMillis(500);
+        }
+
+        props.setHedging(Boolean.parseBoolean(System.getProperty("dashscope.hedging", "false")));
         
         return props;
     }
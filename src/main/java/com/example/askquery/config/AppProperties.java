@@ -3,6 +3,9 @@ package com.example.askquery.config;
 public class AppProperties {
     private String historyFile;
     private int contextLength = 6;
+    private int contextTokens = 8000;
+    private boolean contextSummary = false;
+    private String summaryModel = "";
     private boolean parallel = false;
     private int concurrency = 2;
     private String exitCommands = "exit,quit,q";
@@ -10,7 +13,17 @@ public class AppProperties {
     private boolean useBatRendering = true;
     private String batTheme = "Monokai Extended";
     private String batCommand = "/usr/local/bin/bat";
+    private String renderer = "bat";
     private int historyDisplayCount = 15;
+    private boolean streaming = true;
+    private int historySize = 10000;
+    private int historyMaxAgeDays = 0;
+    private boolean historyArchive = false;
+    private boolean compressAnswers = true;
+    private boolean compressionDictionary = true;
+    private double similarityThreshold = 0.85;
+    private boolean answerServer = false;
+    private int answerServerPort = 0;
 
     public String getHistoryFile() {
         return historyFile;
@@ -28,6 +41,30 @@ public class AppProperties {
         this.contextLength = contextLength;
     }
 
+    public int getContextTokens() {
+        return contextTokens;
+    }
+
+    public void setContextTokens(int contextTokens) {
+        this.contextTokens = contextTokens;
+    }
+
+    public boolean isContextSummary() {
+        return contextSummary;
+    }
+
+    public void setContextSummary(boolean contextSummary) {
+        this.contextSummary = contextSummary;
+    }
+
+    public String getSummaryModel() {
+        return summaryModel;
+    }
+
+    public void setSummaryModel(String summaryModel) {
+        this.summaryModel = summaryModel;
+    }
+
     public boolean isParallel() {
         return parallel;
     }
@@ -91,4 +128,84 @@ public class AppProperties {
     public void setHistoryDisplayCount(int historyDisplayCount) {
         this.historyDisplayCount = historyDisplayCount;
     }
-}
\ No newline at end of file
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public void setHistorySize(int historySize) {
+        this.historySize = historySize;
+    }
+
+    public int getHistoryMaxAgeDays() {
+        return historyMaxAgeDays;
+    }
+
+    public void setHistoryMaxAgeDays(int historyMaxAgeDays) {
+        this.historyMaxAgeDays = historyMaxAgeDays;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public boolean isHistoryArchive() {
+        return historyArchive;
+    }
+
+    public void setHistoryArchive(boolean historyArchive) {
+        this.historyArchive = historyArchive;
+    }
+
+    public boolean isCompressAnswers() {
+        return compressAnswers;
+    }
+
+    public void setCompressAnswers(boolean compressAnswers) {
+        this.compressAnswers = compressAnswers;
+    }
+
+    public boolean isCompressionDictionary() {
+        return compressionDictionary;
+    }
+
+    public void setCompressionDictionary(boolean compressionDictionary) {
+        this.compressionDictionary = compressionDictionary;
+    }
+
+    public String getRenderer() {
+        return renderer;
+    }
+
+    public void setRenderer(String renderer) {
+        this.renderer = renderer;
+    }
+
+    public boolean isAnswerServer() {
+        return answerServer;
+    }
+
+    public void setAnswerServer(boolean answerServer) {
+        this.answerServer = answerServer;
+    }
+
+    public int getAnswerServerPort() {
+        return answerServerPort;
+    }
+
+    public void setAnswerServerPort(int answerServerPort) {
+        this.answerServerPort = answerServerPort;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.askquery.model;
+
+import com.alibaba.dashscope.common.Message;
+import com.example.askquery.util.TokenEstimator;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable chat message.
+ *
+ * It reads as the {@code {"role": ..., "content": ...}} map the client methods take, so it
+ * can be passed wherever a message map is expected, but it also remembers its estimated
+ * token count and its SDK {@link Message}. Both are computed on first use and shared by
+ * every request that sends the message again, instead of being rebuilt per request.
+ */
+public final class ChatMessage extends AbstractMap<String, String> {
+
+    public static final String SYSTEM = "system";
+    public static final String USER = "user";
+    public static final String ASSISTANT = "assistant";
+
+    private final String role;
+    private final String content;
+    private volatile int estimatedTokens = -1;
+    private volatile Message sdkMessage;
+
+    private ChatMessage(String role, String content) {
+        this.role = role;
+        this.content = content == null ? "" : content;
+    }
+
+    public static ChatMessage of(String role, String content) {
+        return new ChatMessage(role, content);
+    }
+
+    public static ChatMessage system(String content) {
+        return new ChatMessage(SYSTEM, content);
+    }
+
+    public static ChatMessage user(String content) {
+        return new ChatMessage(USER, content);
+    }
+
+    public static ChatMessage assistant(String content) {
+        return new ChatMessage(ASSISTANT, content);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Estimated tokens of the message in a prompt, chat template tokens included
+     */
+    public int getEstimatedTokens() {
+        int tokens = estimatedTokens;
+        if (tokens < 0) {
+            tokens = TokenEstimator.estimateMessage(content);
+            estimatedTokens = tokens;
+        }
+        return tokens;
+    }
+
+    /**
+     * The SDK message for this message, built once
+     */
+    public Message toSdkMessage() {
+        Message message = sdkMessage;
+        if (message == null) {
+            message = Message.builder().role(role).content(content).build();
+            sdkMessage = message;
+        }
+        return message;
+    }
+
+    @Override
+    public String get(Object key) {
+        if ("role".equals(key)) {
+            return role;
+        }
+        if ("content".equals(key)) {
+            return content;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return "role".equals(key) || "content".equals(key);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        List<Entry<String, String>> entries = List.of(Map.entry("role", role), Map.entry("content", content));
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+    }
+}
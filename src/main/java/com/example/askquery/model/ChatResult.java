@@ -0,0 +1,166 @@
+package com.example.askquery.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Typed outcome of a chat completion, taken directly from the SDK result.
+ * Timing figures are filled in for streamed answers; they are -1 otherwise.
+ */
+public class ChatResult {
+
+    private static final Pattern TRANSIENT_ERROR = Pattern.compile("(?i)timed?\\s*out|\\b50[0234]\\b"
+            + "|InternalError|ServiceUnavailable|connection (reset|refused|closed)|broken pipe"
+            + "|unexpected end of stream|stream was reset");
+
+    private final String text;
+    private final String finishReason;
+    private final String requestId;
+    private final int inputTokens;
+    private final int outputTokens;
+    private final String error;
+    private final long timeToFirstTokenMillis;
+    private final long elapsedMillis;
+
+    public ChatResult(String text, String finishReason, String requestId,
+                      int inputTokens, int outputTokens, String error) {
+        this(text, finishReason, requestId, inputTokens, outputTokens, error, -1L, -1L);
+    }
+
+    private ChatResult(String text, String finishReason, String requestId, int inputTokens, int outputTokens,
+                       String error, long timeToFirstTokenMillis, long elapsedMillis) {
+        this.text = text;
+        this.finishReason = finishReason;
+        this.requestId = requestId;
+        this.inputTokens = inputTokens;
+        this.outputTokens = outputTokens;
+        this.error = error;
+        this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Creates a result that only carries an error message
+     */
+    public static ChatResult failure(String error) {
+        return new ChatResult("", null, null, 0, 0, error != null ? error : "Unknown error");
+    }
+
+    /**
+     * Returns a copy of this result with the given timing figures
+     */
+    public ChatResult withTiming(long timeToFirstTokenMillis, long elapsedMillis) {
+        return new ChatResult(text, finishReason, requestId, inputTokens, outputTokens, error,
+                timeToFirstTokenMillis, elapsedMillis);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public int getInputTokens() {
+        return inputTokens;
+    }
+
+    public int getOutputTokens() {
+        return outputTokens;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    /**
+     * True when the provider rejected the call for exceeding a rate or quota limit (HTTP 429)
+     */
+    public boolean isThrottled() {
+        return error != null && (error.contains("429") || error.contains("Throttling")
+                || error.toLowerCase(Locale.ROOT).contains("rate limit"));
+    }
+
+    /**
+     * True when the call failed without output for a reason that may pass: throttling,
+     * a timeout, a server error or a dropped connection
+     */
+    public boolean isRetryable() {
+        if (!hasError() || (text != null && !text.isEmpty())) {
+            return false;
+        }
+        return isThrottled() || TRANSIENT_ERROR.matcher(error).find();
+    }
+
+    /**
+     * Text to show the user: the answer, or an error line when the call failed without output
+     */
+    public String getDisplayText() {
+        if (hasError() && (text == null || text.isEmpty())) {
+            return "Error: " + error;
+        }
+        return text != null ? text : "";
+    }
+
+    /**
+     * Milliseconds between sending the request and receiving the first token, or -1 if unknown
+     */
+    public long getTimeToFirstTokenMillis() {
+        return timeToFirstTokenMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Output tokens per second measured from the first token to the last one
+     */
+    public double getTokensPerSecond() {
+        long generationMillis = timeToFirstTokenMillis >= 0 ? elapsedMillis - timeToFirstTokenMillis : elapsedMillis;
+        if (generationMillis <= 0 || outputTokens <= 0) {
+            return 0.0;
+        }
+        return outputTokens * 1000.0 / generationMillis;
+    }
+
+    /**
+     * Builds the JSON form in the SDK response layout (output.choices[0].message.content).
+     * Only callers that still need a JsonNode pay for it.
+     */
+    public JsonNode toJson() {
+        ObjectNode root = JsonNodeFactory.instance.objectNode();
+        if (requestId != null) {
+            root.put("request_id", requestId);
+        }
+        if (hasError()) {
+            root.put("error", error);
+            return root;
+        }
+        ObjectNode choice = root.putObject("output").putArray("choices").addObject();
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        }
+        choice.putObject("message")
+                .put("role", "assistant")
+                .put("content", text != null ? text : "");
+        ObjectNode usage = root.putObject("usage");
+        usage.put("input_tokens", inputTokens);
+        usage.put("output_tokens", outputTokens);
+        usage.put("total_tokens", inputTokens + outputTokens);
+        return root;
+    }
+}
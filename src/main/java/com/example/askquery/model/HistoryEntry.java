@@ -1,52 +1,107 @@
 package com.example.askquery.model;
 
+import com.example.askquery.util.AnswerCompressor;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.zip.DataFormatException;
 
+// Serialized through its fields only, so writing an entry never inflates its answer
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+        setterVisibility = JsonAutoDetect.Visibility.NONE)
 public class HistoryEntry {
 
     @JsonProperty("question")
     private String question;
-    
+
     @JsonProperty("answer")
-    private String answer;
-    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private volatile String answer;
+
+    // zlib-compressed answer (Base64 in JSON), used instead of answer for long answers
+    @JsonProperty("answerDeflated")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private volatile byte[] answerDeflated;
+
     @JsonProperty("timestamp")
     private String timestamp;
-    
+
     public HistoryEntry() {
         // Default constructor for Jackson
     }
-    
+
     public HistoryEntry(String question, String answer) {
         this.question = question;
         this.answer = answer;
         this.timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
-    
+
     public String getQuestion() {
         return question;
     }
-    
+
     public void setQuestion(String question) {
         this.question = question;
     }
-    
+
+    /**
+     * Returns the answer, inflating it on every call if it is stored compressed.
+     * Use {@link #hasAnswer()} where only its presence matters.
+     */
     public String getAnswer() {
-        return answer;
+        // compressAnswer publishes the compressed form before clearing the plain one
+        String plain = answer;
+        if (plain != null) {
+            return plain;
+        }
+        byte[] deflated = answerDeflated;
+        if (deflated == null) {
+            return null;
+        }
+        try {
+            return AnswerCompressor.decompress(deflated);
+        } catch (DataFormatException e) {
+            System.err.println("Warning: Could not decompress stored answer: " + e.getMessage());
+            return null;
+        }
     }
-    
+
     public void setAnswer(String answer) {
         this.answer = answer;
+        this.answerDeflated = null;
+    }
+
+    public boolean hasAnswer() {
+        return answer != null || answerDeflated != null;
     }
-    
+
+    /**
+     * Replaces a plain answer with its compressed form if that is smaller
+     * @return true if the answer is now stored compressed
+     */
+    public boolean compressAnswer(AnswerCompressor compressor) {
+        if (answerDeflated != null) {
+            return true;
+        }
+        byte[] deflated = compressor.compress(answer);
+        if (deflated == null) {
+            return false;
+        }
+        answerDeflated = deflated;
+        answer = null;
+        return true;
+    }
+
     public String getTimestamp() {
         return timestamp;
     }
-    
+
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
-}
\ No newline at end of file
+}
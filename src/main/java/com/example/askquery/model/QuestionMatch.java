@@ -0,0 +1,35 @@
+package com.example.askquery.model;
+
+/**
+ * A history entry found for a new question, with how closely the questions match
+ */
+public class QuestionMatch {
+
+    private final HistoryEntry entry;
+    private final double similarity;
+    private final boolean exact;
+
+    public QuestionMatch(HistoryEntry entry, double similarity, boolean exact) {
+        this.entry = entry;
+        this.similarity = similarity;
+        this.exact = exact;
+    }
+
+    public HistoryEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Jaccard similarity of the normalized questions' shingles; 1.0 for normalized-equal questions
+     */
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    /**
+     * True only when the stored question is character-for-character the asked one
+     */
+    public boolean isExact() {
+        return exact;
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.util.MarkdownRenderer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback HTTP server that shows answers in the browser without writing files.
+ *
+ * Answers are addressed by a history id derived from the question and its timestamp, so
+ * a URL stays valid across sessions. A page is rendered on its first request and kept,
+ * already UTF-8 encoded, in an LRU cache bounded by total size; opening the answer again
+ * is only a URL open. The stylesheet is encoded once at startup. Every response is sent
+ * from a ready byte array with a fixed length and a single write, since the
+ * {@code com.sun.net.httpserver} API offers no channel for a true sendfile.
+ *
+ * Answers still being generated get a live page at {@code /live/<n>} that follows a
+ * server-sent event stream of rendered HTML ({@link LiveAnswer}), one per request, so
+ * parallel requests can be watched side by side.
+ *
+ * Requests must name the server by its loopback address or {@code localhost} in their
+ * {@code Host} header, so a page on another site that rebinds its DNS name to 127.0.0.1
+ * cannot read answers.
+ */
+public class AnswerServer {
+
+    static final String ANSWERS_PATH = "/answers/";
+    static final String LIVE_PATH = "/live/";
+    static final int MAX_LIVE_ANSWERS = 32;
+    static final int MAX_PUBLISHED = 256;
+    static final int DEFAULT_CACHE_BYTES = 16 * 1024 * 1024;
+
+    private static final long KEEP_ALIVE_SECONDS = 15;
+    private static final String HTML_TYPE = "text/html; charset=utf-8";
+
+    private final HistoryManager historyManager;
+    private final PageCache cache;
+    private final byte[] stylesheet = MarkdownRenderer.MONOKAI_CSS.getBytes(StandardCharsets.UTF_8);
+    // Latest entries handed out as URLs, least recently used first; other ids are looked up
+    // in the history. Guarded by itself
+    private final LinkedHashMap<String, HistoryEntry> published = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HistoryEntry> eldest) {
+            return size() > MAX_PUBLISHED;
+        }
+    };
+    // Live answers by id, oldest first; guarded by itself
+    private final LinkedHashMap<String, LiveAnswer> liveAnswers = new LinkedHashMap<>();
+    private final AtomicLong liveSequence = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public AnswerServer(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_CACHE_BYTES);
+    }
+
+    public AnswerServer(HistoryManager historyManager, int cacheBytes) {
+        this.historyManager = historyManager;
+        this.cache = new PageCache(cacheBytes);
+    }
+
+    /**
+     * Starts listening on the loopback interface
+     * @param port the port, or 0 for any free port
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext(ANSWERS_PATH, this::handleAnswer);
+        httpServer.createContext(LIVE_PATH, this::handleLive);
+        httpServer.createContext("/" + MarkdownRenderer.STYLESHEET_FILE, this::handleStylesheet);
+        // Event streams hold their thread until the answer completes, so threads are not capped
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "answer-server");
+            t.setDaemon(true);
+            return t;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        server = httpServer;
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * The URL showing the entry's answer
+     * @throws IllegalStateException if the server is not running
+     */
+    public String urlFor(HistoryEntry entry) {
+        int port = getPort();
+        if (port < 0) {
+            throw new IllegalStateException("Answer server is not running");
+        }
+        String id = idOf(entry);
+        synchronized (published) {
+            published.put(id, entry);
+        }
+        return baseUrl(port) + ANSWERS_PATH + id;
+    }
+
+    /**
+     * Starts a live page for an answer about to be generated. The oldest completed live
+     * answers are dropped once there are more than {@value #MAX_LIVE_ANSWERS}.
+     */
+    public LiveAnswer startLive(String question) {
+        LiveAnswer live = new LiveAnswer(Long.toString(liveSequence.incrementAndGet()), question);
+        synchronized (liveAnswers) {
+            liveAnswers.put(live.getId(), live);
+            Iterator<LiveAnswer> oldest = liveAnswers.values().iterator();
+            while (liveAnswers.size() > MAX_LIVE_ANSWERS && oldest.hasNext()) {
+                if (oldest.next().isDone()) {
+                    oldest.remove();
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * The URL of a live answer's page
+     * @throws IllegalStateException if the server is not running
+     */
+    public String liveUrlFor(LiveAnswer live) {
+        int port = getPort();
+        if (port < 0) {
+            throw new IllegalStateException("Answer server is not running");
+        }
+        return baseUrl(port) + LIVE_PATH + live.getId();
+    }
+
+    private static String baseUrl(int port) {
+        return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port;
+    }
+
+    /**
+     * Stable id of a history entry: a 64-bit FNV-1a hash of the question and timestamp in hex
+     */
+    public static String idOf(HistoryEntry entry) {
+        long hash = 0xcbf29ce484222325L;
+        String key = entry.getQuestion() + '\u0000' + (entry.getTimestamp() == null ? "" : entry.getTimestamp());
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return String.format("%016x", hash);
+    }
+
+    private void handleAnswer(HttpExchange exchange) throws IOException {
+        try {
+            if (!isReadRequest(exchange)) {
+                return;
+            }
+            String id = exchange.getRequestURI().getPath().substring(ANSWERS_PATH.length());
+            byte[] page = cache.get(id);
+            if (page == null) {
+                HistoryEntry entry = find(id);
+                if (entry == null) {
+                    send(exchange, 404, HTML_TYPE, "<p>No answer with this id.</p>".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                page = render(entry);
+                cache.put(id, page);
+            }
+            send(exchange, 200, HTML_TYPE, page);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleLive(HttpExchange exchange) throws IOException {
+        try {
+            if (!isReadRequest(exchange)) {
+                return;
+            }
+            String rest = exchange.getRequestURI().getPath().substring(LIVE_PATH.length());
+            boolean events = rest.endsWith("/events");
+            String id = events ? rest.substring(0, rest.length() - "/events".length()) : rest;
+            LiveAnswer live;
+            synchronized (liveAnswers) {
+                live = liveAnswers.get(id);
+            }
+            if (live == null) {
+                send(exchange, 404, HTML_TYPE, "<p>No live answer with this id.</p>".getBytes(StandardCharsets.UTF_8));
+            } else if (events) {
+                streamEvents(exchange, live);
+            } else {
+                send(exchange, 200, HTML_TYPE, livePage(live).getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void streamEvents(HttpExchange exchange, LiveAnswer live) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        BlockingQueue<LiveAnswer.Event> queue = live.subscribe();
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (true) {
+                LiveAnswer.Event event = queue.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+                // A comment line keeps the connection open and notices a closed tab
+                out.write((event == null ? ": keep-alive\n\n" : format(event)).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (event != null && event.isDone()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The viewer went away
+        } finally {
+            live.unsubscribe(queue);
+        }
+    }
+
+    private static String format(LiveAnswer.Event event) {
+        StringBuilder out = new StringBuilder("event: ").append(event.name).append('\n');
+        for (String line : event.data.split("\n", -1)) {
+            out.append("data: ").append(line).append('\n');
+        }
+        return out.append('\n').toString();
+    }
+
+    private static String livePage(LiveAnswer live) {
+        String title = MarkdownRenderer.escapeHtml(live.getQuestion());
+        return "<!DOCTYPE html>\n"
+                + "<html>\n"
+                + "<head>\n"
+                + "    <meta charset=\"utf-8\">\n"
+                + "    <title>" + title + "</title>\n"
+                + "    <link rel=\"stylesheet\" href=\"/" + MarkdownRenderer.STYLESHEET_FILE + "\">\n"
+                + "</head>\n"
+                + "<body>\n"
+                + "    <div class=\"container\">\n"
+                + "        <div class=\"question\">\n"
+                + "            <h1>❓ " + title + "</h1>\n"
+                + "        </div>\n"
+                + "        <div class=\"response\"><div id=\"blocks\"></div><div id=\"tail\"></div></div>\n"
+                + "        <div class=\"timestamp\" id=\"status\">Generating…</div>\n"
+                + "    </div>\n"
+                + "    <script>\n"
+                + "        const source = new EventSource(location.pathname + '/events');\n"
+                + "        const blocks = document.getElementById('blocks');\n"
+                + "        const tail = document.getElementById('tail');\n"
+                + "        source.addEventListener('block', e => blocks.insertAdjacentHTML('beforeend', e.data));\n"
+                + "        source.addEventListener('tail', e => { tail.innerHTML = e.data; });\n"
+                + "        source.addEventListener('done', () => {\n"
+                + "            source.close();\n"
+                + "            document.getElementById('status').textContent = 'Complete';\n"
+                + "        });\n"
+                + "    </script>\n"
+                + "</body>\n"
+                + "</html>\n";
+    }
+
+    private void handleStylesheet(HttpExchange exchange) throws IOException {
+        try {
+            if (isReadRequest(exchange)) {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=86400");
+                send(exchange, 200, "text/css; charset=utf-8", stylesheet);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static boolean isReadRequest(HttpExchange exchange) throws IOException {
+        if (!isLoopbackHost(exchange)) {
+            exchange.sendResponseHeaders(403, -1);
+            return false;
+        }
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET") || method.equals("HEAD")) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return false;
+    }
+
+    /**
+     * True when the Host header names this server by a loopback name and its port
+     */
+    static boolean isLoopbackHost(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return false;
+        }
+        String port = ":" + exchange.getLocalAddress().getPort();
+        String loopback = InetAddress.getLoopbackAddress().getHostAddress();
+        String name = host.toLowerCase(Locale.ROOT);
+        return name.equals(loopback + port) || name.equals("localhost" + port)
+                || name.equals("127.0.0.1" + port) || name.equals("[::1]" + port);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private HistoryEntry find(String id) {
+        HistoryEntry entry;
+        synchronized (published) {
+            entry = published.get(id);
+        }
+        if (entry != null) {
+            return entry;
+        }
+        List<HistoryEntry> history = historyManager.loadHistory();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (idOf(history.get(i)).equals(id)) {
+                return history.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] render(HistoryEntry entry) {
+        StringBuilder html = new StringBuilder();
+        try {
+            MarkdownRenderer.writeMonokaiPage(html, entry.getQuestion(), entry.getAnswer(),
+                    "/" + MarkdownRenderer.STYLESHEET_FILE);
+        } catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rendered pages by id, least recently used first, bounded by their total size
+     */
+    static final class PageCache {
+        private final int maxBytes;
+        private final LinkedHashMap<String, byte[]> pages = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        PageCache(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(String id) {
+            return pages.get(id);
+        }
+
+        synchronized void put(String id, byte[] page) {
+            byte[] previous = pages.put(id, page);
+            bytes += page.length - (previous == null ? 0 : previous.length);
+            Iterator<byte[]> eldest = pages.values().iterator();
+            while (bytes > maxBytes && pages.size() > 1) {
+                bytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+
+        synchronized int size() {
+            return pages.size();
+        }
+    }
+
+    int cachedPages() {
+        return cache.size();
+    }
+
+    int publishedEntries() {
+        synchronized (published) {
+            return published.size();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.askquery.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * An AIMD (additive increase, multiplicative decrease) limit on concurrent calls.
+ *
+ * Every healthy call adds {@code 1 / limit}, so the limit grows by about one per round of
+ * calls. A call is healthy when it succeeds and its latency per output token stays within
+ * twice a baseline that follows faster calls quickly and slower ones only slowly, so a
+ * limit that just makes calls queue on the provider side stops growing. Throttling halves
+ * the limit and other failures cut it by a tenth, at most once per
+ * {@value #DECREASE_INTERVAL_MILLIS} ms, since calls that were sent together tend to fail
+ * together. The limit stays between 1 and the configured maximum.
+ */
+public class ConcurrencyLimit {
+
+    static final long DECREASE_INTERVAL_MILLIS = 1000;
+    private static final double THROTTLED_FACTOR = 0.5;
+    private static final double ERROR_FACTOR = 0.9;
+    private static final double BASELINE_DOWN = 0.5;
+    private static final double BASELINE_UP = 0.02;
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private final int max;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private double limit;
+    private double baselineLatency = -1;
+    private long lastDecreaseAt;
+    private boolean decreased;
+
+    public ConcurrencyLimit(int initial, int max) {
+        this(initial, max, System::nanoTime);
+    }
+
+    ConcurrencyLimit(int initial, int max, LongSupplier clock) {
+        this.max = Math.max(1, max);
+        this.clock = clock;
+        this.limit = Math.max(1, Math.min(this.max, initial));
+    }
+
+    /**
+     * Current number of calls allowed at once
+     */
+    public synchronized int get() {
+        return (int) limit;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Resets the limit, for example to a configured starting value
+     */
+    public synchronized void set(int value) {
+        limit = Math.max(1, Math.min(max, value));
+    }
+
+    /**
+     * Records a successful call
+     * @param latencyMillis time the call took
+     * @param outputTokens tokens it produced, to compare calls of different lengths
+     */
+    public synchronized void onSuccess(long latencyMillis, int outputTokens) {
+        double latency = latencyMillis / (double) Math.max(1, outputTokens);
+        boolean healthy = baselineLatency < 0 || latency <= baselineLatency * LATENCY_TOLERANCE;
+        if (baselineLatency < 0) {
+            baselineLatency = latency;
+        } else {
+            double weight = latency < baselineLatency ? BASELINE_DOWN : BASELINE_UP;
+            baselineLatency += weight * (latency - baselineLatency);
+        }
+        if (healthy) {
+            limit = Math.min(max, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Records a call rejected by the provider's rate limits
+     */
+    public synchronized void onThrottled() {
+        decrease(THROTTLED_FACTOR);
+    }
+
+    /**
+     * Records a call that failed for another reason, such as a timeout or server error
+     */
+    public synchronized void onError() {
+        decrease(ERROR_FACTOR);
+    }
+
+    private void decrease(double factor) {
+        long now = clock.getAsLong();
+        if (decreased && now - lastDecreaseAt < TimeUnit.MILLISECONDS.toNanos(DECREASE_INTERVAL_MILLIS)) {
+            return;
+        }
+        limit = Math.max(1, limit * factor);
+        lastDecreaseAt = now;
+        decreased = true;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.ChatMessage;
+import com.example.askquery.util.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The conversation sent along with each question, fitted into a token budget.
+ *
+ * The conversation is a persistent list of immutable {@link ChatMessage}s, newest first,
+ * published through a single volatile reference. Adding a message links one node in front
+ * of the existing ones, so a request takes its snapshot with one read and without a lock,
+ * and never sees a conversation another thread is halfway through changing. Writers are
+ * serialized; the chain is copied only when it has grown to twice the message limit.
+ *
+ * Messages keep their estimated token count, so fitting a prompt costs one pass over the
+ * messages, newest first. Whole messages are kept while they fit; the first one that does
+ * not is truncated to the remaining budget when enough of it is left to be useful, and
+ * everything older is dropped. The system message and the question itself are always sent.
+ *
+ * Older messages can also be folded into a rolling summary ({@link ConversationSummarizer}):
+ * {@link #startFold(int)} hands them out, and {@link #completeFold(Fold, String)} replaces
+ * them with the new summary, which is then sent as part of the system message.
+ */
+public class ContextWindow {
+
+    // Truncating a message to less than this is not worth the tokens
+    static final int MIN_TRUNCATED_TOKENS = 64;
+    static final String TRUNCATION_MARK = "\n…";
+    static final String SUMMARY_HEADER = "Summary of the earlier conversation:\n";
+
+    /**
+     * A prompt fitted into the budget
+     */
+    public static final class Prompt {
+        private final List<ChatMessage> messages;
+        private final int estimatedTokens;
+        private final int contextMessages;
+        private final int availableMessages;
+
+        Prompt(List<ChatMessage> messages, int estimatedTokens, int contextMessages, int availableMessages) {
+            this.messages = Collections.unmodifiableList(messages);
+            this.estimatedTokens = estimatedTokens;
+            this.contextMessages = contextMessages;
+            this.availableMessages = availableMessages;
+        }
+
+        public List<ChatMessage> getChatMessages() {
+            return messages;
+        }
+
+        /**
+         * The messages in the map form the client methods take
+         */
+        public List<Map<String, String>> getMessages() {
+            return Collections.unmodifiableList(messages);
+        }
+
+        /**
+         * The question, last in the prompt
+         */
+        public ChatMessage getQuestion() {
+            return messages.get(messages.size() - 1);
+        }
+
+        /**
+         * A 64-bit FNV-1a hash of every message before the question; prompts with equal
+         * fingerprints ask their question in the same context
+         */
+        public long getContextFingerprint() {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < messages.size() - 1; i++) {
+                ChatMessage message = messages.get(i);
+                String key = message.getRole() + '\u0000' + message.getContent() + '\u0000';
+                for (int j = 0; j < key.length(); j++) {
+                    hash ^= key.charAt(j);
+                    hash *= 0x100000001b3L;
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * Estimated prompt tokens, template tokens included
+         */
+        public int getEstimatedTokens() {
+            return estimatedTokens;
+        }
+
+        /**
+         * Earlier messages sent, including a truncated one
+         */
+        public int getContextMessages() {
+            return contextMessages;
+        }
+
+        /**
+         * Earlier messages there were to choose from
+         */
+        public int getAvailableMessages() {
+            return availableMessages;
+        }
+    }
+
+    /**
+     * Messages handed out to be summarized, with the summary they extend
+     */
+    static final class Fold {
+        private final String summary;
+        private final List<ChatMessage> messages;
+        // Newest of the folded messages; found by identity even after the chain was copied
+        private final ChatMessage newest;
+
+        private Fold(String summary, List<ChatMessage> messages, ChatMessage newest) {
+            this.summary = summary;
+            this.messages = messages;
+            this.newest = newest;
+        }
+
+        String getSummary() {
+            return summary;
+        }
+
+        List<Map<String, String>> getMessages() {
+            return Collections.unmodifiableList(messages);
+        }
+    }
+
+    private static final class Node {
+        final ChatMessage message;
+        final Node older;
+
+        Node(ChatMessage message, Node older) {
+            this.message = message;
+            this.older = older;
+        }
+    }
+
+    /**
+     * One version of the conversation; never changed once published
+     */
+    private static final class State {
+        final Node newest;
+        // Nodes in the chain; only the latest {@code limit} of them are part of the conversation
+        final int length;
+        final int limit;
+        final String summary;
+
+        State(Node newest, int length, int limit, String summary) {
+            this.newest = newest;
+            this.length = length;
+            this.limit = limit;
+            this.summary = summary;
+        }
+
+        int size() {
+            return Math.min(length, limit);
+        }
+    }
+
+    private final Object writeLock = new Object();
+    private volatile State state = new State(null, 0, 0, "");
+    // The last system message sent, reused while its content stays the same
+    private volatile ChatMessage system;
+
+    /**
+     * Appends a message, keeping at most the given number of latest messages
+     */
+    public void add(String role, String content, int maxMessages) {
+        add(ChatMessage.of(role, content), maxMessages);
+    }
+
+    /**
+     * Appends a message, keeping at most the given number of latest messages
+     */
+    public void add(ChatMessage message, int maxMessages) {
+        int limit = Math.max(0, maxMessages);
+        synchronized (writeLock) {
+            State current = state;
+            Node newest = new Node(message, current.newest);
+            int length = current.length + 1;
+            if (length > 2 * limit) {
+                // Let go of the messages past the limit; amortized over the adds in between
+                newest = copy(newest, limit);
+                length = Math.min(length, limit);
+            }
+            state = new State(newest, length, limit, current.summary);
+        }
+    }
+
+    public int size() {
+        return state.size();
+    }
+
+    public String getSummary() {
+        return state.summary;
+    }
+
+    /**
+     * Hands out the messages older than the latest ones to be summarized
+     * @return null when there are no more than {@code keepRecent} messages
+     */
+    Fold startFold(int keepRecent) {
+        State snapshot = state;
+        int keep = Math.max(0, keepRecent);
+        int count = snapshot.size() - keep;
+        if (count <= 0) {
+            return null;
+        }
+        Node node = snapshot.newest;
+        for (int i = 0; i < keep; i++) {
+            node = node.older;
+        }
+        ChatMessage newestFolded = node.message;
+        List<ChatMessage> older = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            older.add(node.message);
+            node = node.older;
+        }
+        Collections.reverse(older);
+        return new Fold(snapshot.summary, older, newestFolded);
+    }
+
+    /**
+     * Replaces the folded messages with the summary that now covers them. Messages trimmed
+     * meanwhile are skipped; a fold based on an outdated summary is discarded.
+     */
+    void completeFold(Fold fold, String newSummary) {
+        synchronized (writeLock) {
+            State current = state;
+            if (!fold.summary.equals(current.summary)) {
+                return;
+            }
+            // Keep the messages added after the folded ones
+            int kept = 0;
+            Node node = current.newest;
+            while (node != null && node.message != fold.newest && kept < current.size()) {
+                node = node.older;
+                kept++;
+            }
+            // Not found means the folded messages were trimmed meanwhile, so none are sent twice
+            boolean found = node != null && node.message == fold.newest;
+            Node newest = found ? copy(current.newest, kept) : current.newest;
+            int length = found ? kept : current.length;
+            state = new State(newest, length, current.limit, newSummary == null ? "" : newSummary.strip());
+        }
+    }
+
+    /**
+     * Builds the messages for a question from a snapshot of the conversation
+     * @param systemMessage sent first unless blank
+     * @param question the question being asked, sent last
+     * @param maxMessages how many of the latest messages may be sent; 0 or less sends none
+     * @param tokenBudget total prompt tokens to stay within; 0 or less means no limit
+     */
+    public Prompt fit(String systemMessage, String question, int maxMessages, int tokenBudget) {
+        State snapshot = state;
+        int allowed = Math.min(Math.max(0, maxMessages), snapshot.size());
+        String systemContent = systemMessage != null && !systemMessage.isBlank() ? systemMessage : "";
+        if (maxMessages > 0 && !snapshot.summary.isEmpty()) {
+            systemContent = (systemContent.isEmpty() ? "" : systemContent + "\n\n") + SUMMARY_HEADER + snapshot.summary;
+        }
+        ChatMessage systemPrompt = systemContent.isEmpty() ? null : systemMessage(systemContent);
+        ChatMessage questionMessage = ChatMessage.user(question);
+        int tokens = TokenEstimator.REPLY_PRIMING + questionMessage.getEstimatedTokens()
+                + (systemPrompt != null ? systemPrompt.getEstimatedTokens() : 0);
+        int remaining = tokenBudget > 0 ? tokenBudget - tokens : Integer.MAX_VALUE;
+
+        List<ChatMessage> context = new ArrayList<>();
+        Node node = snapshot.newest;
+        while (node != null && context.size() < allowed) {
+            ChatMessage message = node.message;
+            node = node.older;
+            if (message.getEstimatedTokens() <= remaining) {
+                context.add(message);
+                remaining -= message.getEstimatedTokens();
+                tokens += message.getEstimatedTokens();
+                continue;
+            }
+            int room = remaining - TokenEstimator.MESSAGE_OVERHEAD - TokenEstimator.estimate(TRUNCATION_MARK);
+            if (room >= MIN_TRUNCATED_TOKENS) {
+                ChatMessage truncated = ChatMessage.of(message.getRole(),
+                        TokenEstimator.truncate(message.getContent(), room).stripTrailing() + TRUNCATION_MARK);
+                context.add(truncated);
+                tokens += truncated.getEstimatedTokens();
+            }
+            break;
+        }
+        Collections.reverse(context);
+
+        List<ChatMessage> prompt = new ArrayList<>(context.size() + 2);
+        if (systemPrompt != null) {
+            prompt.add(systemPrompt);
+        }
+        prompt.addAll(context);
+        prompt.add(questionMessage);
+        return new Prompt(prompt, tokens, context.size(), snapshot.size());
+    }
+
+    private ChatMessage systemMessage(String content) {
+        ChatMessage cached = system;
+        if (cached == null || !cached.getContent().equals(content)) {
+            cached = ChatMessage.system(content);
+            system = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * A new chain holding the newest {@code count} nodes of the given one
+     */
+    private static Node copy(Node newest, int count) {
+        ChatMessage[] messages = new ChatMessage[count];
+        Node node = newest;
+        int n = 0;
+        while (node != null && n < count) {
+            messages[n++] = node.message;
+            node = node.older;
+        }
+        Node copy = null;
+        for (int i = n - 1; i >= 0; i--) {
+            copy = new Node(messages[i], copy);
+        }
+        return copy;
+    }
+}
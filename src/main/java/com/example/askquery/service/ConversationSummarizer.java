@@ -0,0 +1,140 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.ChatResult;
+import com.example.askquery.util.ExtractiveSummarizer;
+import com.example.askquery.util.TokenEstimator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Folds older conversation rounds into a rolling summary in the background, so prompts
+ * stay small in long sessions while earlier answers still inform later ones.
+ *
+ * After each answer, the messages before the latest {@value #KEEP_RECENT_MESSAGES} are
+ * summarized together with the previous summary, either by a cheap model or, when no
+ * summary model is configured or the call fails, by {@link ExtractiveSummarizer}. The
+ * summary is kept within {@value #SUMMARY_TOKENS} estimated tokens. Work runs on one
+ * daemon thread started on first use; answers arriving while it runs are folded in the
+ * same pass.
+ */
+public class ConversationSummarizer {
+
+    static final int KEEP_RECENT_MESSAGES = 4;
+    static final int SUMMARY_TOKENS = 600;
+    // Transcript sent to the summary model per call
+    private static final int TRANSCRIPT_TOKENS = 6000;
+    private static final String INSTRUCTIONS = "You maintain a running summary of a conversation between a user"
+            + " and an assistant. Merge the earlier summary and the new messages into one updated summary."
+            + " Keep the questions asked, facts, names, code identifiers, commands and decisions; drop"
+            + " pleasantries and repetition. Write in the conversation's language, as plain notes, at most "
+            + SUMMARY_TOKENS / 2 + " words.";
+
+    private final ContextWindow context;
+    private final DashscopeClient client;
+    private final String model;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // Guarded by this
+    private ExecutorService executor;
+    private boolean closed;
+
+    /**
+     * @param model the model that writes summaries; null or blank summarizes locally
+     */
+    public ConversationSummarizer(ContextWindow context, DashscopeClient client, String model) {
+        this.context = context;
+        this.client = client;
+        this.model = model;
+    }
+
+    /**
+     * Summarizes older messages in the background; does nothing if a pass is already queued
+     */
+    public void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                scheduled.set(false);
+                return;
+            }
+            if (executor == null) {
+                executor = Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "context-summarizer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            executor.execute(this::summarizeNow);
+        }
+    }
+
+    /**
+     * Folds all messages before the latest ones into the summary on the calling thread
+     */
+    void summarizeNow() {
+        scheduled.set(false);
+        ContextWindow.Fold fold;
+        while ((fold = context.startFold(KEEP_RECENT_MESSAGES)) != null) {
+            context.completeFold(fold, summarize(fold.getSummary(), fold.getMessages()));
+        }
+    }
+
+    String summarize(String previous, List<Map<String, String>> messages) {
+        if (model != null && !model.isBlank()) {
+            try {
+                ChatResult result = client.send(List.of(
+                        Map.of("role", "system", "content", INSTRUCTIONS),
+                        Map.of("role", "user", "content", transcript(previous, messages))), model);
+                if (result != null && !result.hasError() && !result.getText().isBlank()) {
+                    return TokenEstimator.truncate(result.getText().strip(), SUMMARY_TOKENS);
+                }
+            } catch (RuntimeException e) {
+                // Fall back to the local summary
+            }
+        }
+        return ExtractiveSummarizer.summarize(previous, messages, SUMMARY_TOKENS);
+    }
+
+    private static String transcript(String previous, List<Map<String, String>> messages) {
+        StringBuilder text = new StringBuilder();
+        if (previous != null && !previous.isEmpty()) {
+            text.append("Earlier summary:\n").append(previous).append("\n\n");
+        }
+        text.append("New messages:\n");
+        int perMessage = TRANSCRIPT_TOKENS / Math.max(1, messages.size());
+        for (Map<String, String> message : messages) {
+            text.append("user".equals(message.get("role")) ? "User: " : "Assistant: ")
+                    .append(TokenEstimator.truncate(message.get("content"), perMessage))
+                    .append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Stops the background thread, waiting briefly for a pass in progress
+     */
+    public void close(long timeout, TimeUnit unit) {
+        ExecutorService running;
+        synchronized (this) {
+            closed = true;
+            running = executor;
+            executor = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            running.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
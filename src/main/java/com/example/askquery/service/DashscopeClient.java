@@ -1,16 +1,36 @@
 package com.example.askquery.service;
 
 import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationOutput;
 import com.alibaba.dashscope.aigc.generation.GenerationParam;
 import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.aigc.generation.GenerationUsage;
 import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.ResultCallback;
 import com.example.askquery.config.DashscopeProperties;
+import com.example.askquery.model.ChatMessage;
+import com.example.askquery.model.ChatResult;
+import com.example.askquery.util.TokenEstimator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class DashscopeClient {
 
@@ -20,48 +40,565 @@ public class DashscopeClient {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
+    // Completes async futures off the SDK's I/O threads; threads are only created on demand
+    private final ExecutorService asyncExecutor;
+
+    // Async calls beyond the concurrency limit wait here until a running call finishes
+    private final Deque<PendingCall> pendingCalls = new ArrayDeque<>();
+    private int runningCalls = 0;
+    private final ConcurrencyLimit concurrencyLimit;
+    private final RateLimiter rateLimiter;
+
+    // Completes attempts that lost to another attempt of the same call
+    private static final ChatResult CANCELLED = ChatResult.failure("Cancelled");
+    private static final long MAX_BACKOFF_MILLIS = 20_000;
+    static final int HEDGE_RATIO_PERCENT = 10;
+    final LatencyTracker latencies = new LatencyTracker();
+    private final AtomicLong asyncCalls = new AtomicLong();
+    private final AtomicLong hedgedCalls = new AtomicLong();
+
+    /**
+     * An async call and the tokens reserved for it
+     */
+    private static final class PendingCall {
+        final Runnable task;
+        final int estimatedTokens;
+
+        PendingCall(Runnable task, int estimatedTokens) {
+            this.task = task;
+            this.estimatedTokens = estimatedTokens;
+        }
+    }
+
     public DashscopeClient(DashscopeProperties props) {
+        this(props, new Generation());
+    }
+
+    DashscopeClient(DashscopeProperties props, Generation generation) {
         this.props = props;
-        this.generation = new Generation();
+        this.generation = generation;
+        this.concurrencyLimit = new ConcurrencyLimit(props.getMaxConcurrency(), props.getMaxConcurrency());
+        this.rateLimiter = new RateLimiter(props.getRequestsPerMinute(), props.getTokensPerMinute());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.asyncExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "dashscope-async-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
-     * Send messages to the configured API endpoint using Dashscope SDK.
-     * Converts the message format to Dashscope SDK Message objects.
+     * Send messages to the configured API endpoint using Dashscope SDK and decode
+     * the answer straight from the SDK result.
      *
-     * Returns the response body as a JsonNode for flexibility; caller extracts text.
+     * Errors are reported on the returned result rather than thrown.
      */
-    public JsonNode sendMessages(List<Map<String, String>> messages, String model) {
-        try {
-            // Convert the message format to Dashscope Message objects
-            List<Message> dashscopeMessages = messages.stream()
-                    .map(msg -> Message.builder()
-                            .role(msg.get("role"))
-                            .content(msg.get("content"))
-                            .build())
-                    .collect(Collectors.toList());
+    public ChatResult send(List<Map<String, String>> messages, String model) {
+        ChatResult result = sendOnce(messages, model);
+        for (int retry = 0; retry < props.getMaxRetries() && result.isRetryable(); retry++) {
+            if (!sleep(backoffMillis(retry))) {
+                break;
+            }
+            result = sendOnce(messages, model);
+        }
+        return result;
+    }
 
+    private ChatResult sendOnce(List<Map<String, String>> messages, String model) {
+        int estimatedTokens = TokenEstimator.estimateMessages(messages);
+        if (!acquire(estimatedTokens)) {
+            return ChatResult.failure("Interrupted while waiting for the rate limit");
+        }
+        long start = System.nanoTime();
+        try {
             GenerationParam param = GenerationParam.builder()
                     .apiKey(props.getApi().getKey())
                     .model(model)
-                    .messages(dashscopeMessages)
+                    .messages(toDashscopeMessages(messages))
                     .resultFormat(GenerationParam.ResultFormat.MESSAGE)
                     .build();
 
             GenerationResult result = generation.call(param);
-
-            // Convert the result to JsonNode for compatibility with existing code
-            String resultJson = mapper.writeValueAsString(result);
-            return mapper.readTree(resultJson);
+            return settle(estimatedTokens, toChatResult(result).withTiming(-1L, millisSince(start, System.nanoTime())));
         } catch (Exception ex) {
-            // wrap into a JSON-like node with error info
+            return settle(estimatedTokens, ChatResult.failure(ex.getMessage()));
+        }
+    }
+
+    /**
+     * Send messages to the configured API endpoint using Dashscope SDK.
+     *
+     * Returns the response in the SDK's JSON layout for callers that still work with
+     * JsonNode; the node is built from the typed result, not by re-parsing the response.
+     */
+    public JsonNode sendMessages(List<Map<String, String>> messages, String model) {
+        return send(messages, model).toJson();
+    }
+
+    /**
+     * Send messages asynchronously using the configured request timeout.
+     */
+    public CompletableFuture<ChatResult> sendMessagesAsync(List<Map<String, String>> messages, String model) {
+        return sendMessagesAsync(messages, model, Duration.ofSeconds(props.getRequestTimeoutSeconds()));
+    }
+
+    /**
+     * Send messages asynchronously. The SDK performs the HTTP call on its own I/O threads,
+     * so no caller thread is held while the request is in flight.
+     *
+     * Retryable failures are retried after a jittered exponential backoff. With hedging
+     * enabled, a call still running after the observed p95 latency gets a duplicate; the
+     * first successful answer is used and the other call is cancelled: if still queued it is
+     * never sent, and if already sent it gives up its slot and its answer is discarded, since
+     * the SDK cannot abort a request in flight. The future always
+     * completes normally: failures and timeouts are reported as a {@link ChatResult}
+     * carrying an error, mirroring {@link #send}.
+     */
+    public CompletableFuture<ChatResult> sendMessagesAsync(List<Map<String, String>> messages, String model,
+                                                           Duration timeout) {
+        CompletableFuture<ChatResult> future = new CompletableFuture<>();
+        // Build the SDK messages on the caller thread so later changes to the list do not leak in
+        List<Message> dashscopeMessages = toDashscopeMessages(messages);
+        int estimatedTokens = TokenEstimator.estimateMessages(messages);
+        Supplier<CompletableFuture<ChatResult>> call = () -> callAsync(dashscopeMessages, model, estimatedTokens);
+
+        // Calls racing for this future; a failure only counts once no other call can succeed
+        AtomicInteger racing = new AtomicInteger(1);
+        Consumer<ChatResult> finish = result -> {
+            if (result == CANCELLED) {
+                return;
+            }
+            if (!result.hasError() || racing.decrementAndGet() == 0) {
+                future.complete(result);
+            }
+        };
+        withRetries(call, future).thenAccept(finish);
+        scheduleHedge(call, future, racing, finish);
+
+        if (timeout != null && !timeout.isZero() && !timeout.isNegative()) {
+            future.completeOnTimeout(ChatResult.failure("Request timed out after " + timeout.toSeconds() + " s"),
+                    timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Stream messages asynchronously, handing every text fragment to {@code onToken} as it
+     * arrives. The stream is read on the SDK's I/O threads, subject to the same limits, retries
+     * and request timeout as {@link #sendMessagesAsync}; a stream is only retried if it failed
+     * before its first fragment, and never hedged. A stream still running when the request
+     * times out is cancelled, which frees its slot at once. The future always completes normally.
+     */
+    public CompletableFuture<ChatResult> streamMessagesAsync(List<Map<String, String>> messages, String model,
+                                                             Consumer<String> onToken) {
+        CompletableFuture<ChatResult> future = new CompletableFuture<>();
+        List<Map<String, String>> request = List.copyOf(messages);
+        int estimatedTokens = TokenEstimator.estimateMessages(request);
+        withRetries(() -> streamAsync(request, model, onToken, estimatedTokens), future).thenAccept(result -> {
+            if (result != CANCELLED) {
+                future.complete(result);
+            }
+        });
+
+        Duration timeout = Duration.ofSeconds(props.getRequestTimeoutSeconds());
+        if (!timeout.isZero() && !timeout.isNegative()) {
+            future.completeOnTimeout(ChatResult.failure("Request timed out after " + timeout.toSeconds() + " s"),
+                    timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * One attempt of an async stream, queued behind the concurrency and rate limits. The
+     * subscription is disposed as soon as the attempt completes, so a stream cancelled by a
+     * timeout stops reading and holds no slot.
+     */
+    private CompletableFuture<ChatResult> streamAsync(List<Map<String, String>> messages, String model,
+                                                      Consumer<String> onToken, int estimatedTokens) {
+        CompletableFuture<ChatResult> attempt = new CompletableFuture<>();
+        submitCall(() -> {
+            StreamedAnswer answer = new StreamedAnswer(onToken);
+            try {
+                // Completed off the SDK's I/O threads, like non-streamed calls
+                Consumer<String> finish = error -> {
+                    ChatResult result = answer.toResult(error);
+                    attempt.completeAsync(() -> result, asyncExecutor);
+                };
+                Disposable subscription = generation.streamCall(streamParam(messages, model)).subscribe(
+                        answer::accept, error -> finish.accept(error.getMessage()), () -> finish.accept(null));
+                attempt.whenComplete((result, error) -> subscription.dispose());
+            } catch (Exception ex) {
+                attempt.complete(answer.toResult(ex.getMessage()));
+            }
+        }, attempt, estimatedTokens);
+        return attempt;
+    }
+
+    /**
+     * One attempt of an async call, queued behind the concurrency and rate limits
+     */
+    private CompletableFuture<ChatResult> callAsync(List<Message> dashscopeMessages, String model, int estimatedTokens) {
+        CompletableFuture<ChatResult> attempt = new CompletableFuture<>();
+        submitCall(() -> {
+            long start = System.nanoTime();
             try {
-                return mapper.createObjectNode().put("error", ex.getMessage());
-            } catch (Exception e) {
-                // If even creating the error node fails, return a basic object
-                return mapper.createObjectNode();
+                GenerationParam param = GenerationParam.builder()
+                        .apiKey(props.getApi().getKey())
+                        .model(model)
+                        .messages(dashscopeMessages)
+                        .resultFormat(GenerationParam.ResultFormat.MESSAGE)
+                        .build();
+
+                generation.call(param, new ResultCallback<GenerationResult>() {
+                    private GenerationResult last;
+
+                    @Override
+                    public void onEvent(GenerationResult result) {
+                        last = result;
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        ChatResult chatResult = toChatResult(last).withTiming(-1L, millisSince(start, System.nanoTime()));
+                        if (!chatResult.hasError()) {
+                            latencies.record(chatResult.getElapsedMillis());
+                        }
+                        attempt.completeAsync(() -> chatResult, asyncExecutor);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        attempt.completeAsync(() -> ChatResult.failure(e.getMessage()), asyncExecutor);
+                    }
+                });
+            } catch (Exception ex) {
+                attempt.completeAsync(() -> ChatResult.failure(ex.getMessage()), asyncExecutor);
+            }
+        }, attempt, estimatedTokens);
+        return attempt;
+    }
+
+    /**
+     * Runs attempts of a call until one succeeds, fails for good or the retries are used up.
+     * Attempts still queued or running when {@code outer} completes are cancelled: they free
+     * their slot at once, and a queued one is never sent.
+     * @return the last attempt's result, or {@link #CANCELLED}
+     */
+    private CompletableFuture<ChatResult> withRetries(Supplier<CompletableFuture<ChatResult>> call,
+                                                      CompletableFuture<ChatResult> outer) {
+        CompletableFuture<ChatResult> result = new CompletableFuture<>();
+        attempt(call, outer, result, 0);
+        return result;
+    }
+
+    private void attempt(Supplier<CompletableFuture<ChatResult>> call, CompletableFuture<ChatResult> outer,
+                         CompletableFuture<ChatResult> result, int retry) {
+        if (outer.isDone()) {
+            result.complete(CANCELLED);
+            return;
+        }
+        CompletableFuture<ChatResult> attempt = call.get();
+        // A timeout counts as a failure of the attempt; losing to another attempt does not
+        outer.whenComplete((value, error) -> attempt.complete(value != null && value.hasError() ? value : CANCELLED));
+        attempt.thenAccept(value -> {
+            if (value != CANCELLED && retry < props.getMaxRetries() && value.isRetryable() && !outer.isDone()) {
+                CompletableFuture.delayedExecutor(backoffMillis(retry), TimeUnit.MILLISECONDS, asyncExecutor)
+                        .execute(() -> attempt(call, outer, result, retry + 1));
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Sends a duplicate of a call still running after the observed p95 latency, as long as
+     * hedges stay within {@value #HEDGE_RATIO_PERCENT}% of calls
+     */
+    private void scheduleHedge(Supplier<CompletableFuture<ChatResult>> call, CompletableFuture<ChatResult> outer,
+                               AtomicInteger racing, Consumer<ChatResult> finish) {
+        long calls = asyncCalls.incrementAndGet();
+        if (!props.isHedging()) {
+            return;
+        }
+        long p95 = latencies.percentile(0.95);
+        if (p95 < 0) {
+            return;
+        }
+        CompletableFuture.delayedExecutor(p95, TimeUnit.MILLISECONDS, asyncExecutor).execute(() -> {
+            if (outer.isDone() || hedgedCalls.get() * 100 >= calls * HEDGE_RATIO_PERCENT) {
+                return;
+            }
+            racing.incrementAndGet();
+            if (outer.isDone()) {
+                return;
+            }
+            hedgedCalls.incrementAndGet();
+            // The hedge gets no retries of its own, which bounds its cost to one extra call
+            CompletableFuture<ChatResult> hedge = call.get();
+            // Cancelled like any losing attempt once the call is decided
+            outer.whenComplete((value, error) -> hedge.complete(CANCELLED));
+            hedge.thenAccept(result -> finish.accept(outer.isDone() ? CANCELLED : result));
+        });
+    }
+
+    /**
+     * Exponential backoff with jitter: half the delay is fixed and half random, so clients
+     * that failed together do not retry together
+     */
+    long backoffMillis(int retry) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, Math.max(1, props.getRetryBaseDelayMillis()) << Math.min(retry, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Sets how many async calls may be in flight; further calls are queued, not rejected.
+     * The limit then adapts to the provider: it grows while calls are fast and succeed and
+     * backs off when they are throttled or fail ({@link ConcurrencyLimit}), up to
+     * {@link DashscopeProperties#getMaxConcurrency()}.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        concurrencyLimit.set(maxConcurrentRequests);
+        drainPendingCalls();
+    }
+
+    /**
+     * The current concurrency limit for async calls
+     */
+    public int getMaxConcurrentRequests() {
+        return concurrencyLimit.get();
+    }
+
+    private void submitCall(Runnable call, CompletableFuture<ChatResult> future, int estimatedTokens) {
+        PendingCall pending = new PendingCall(() -> {
+            // A call that timed out while queued is never sent
+            if (!future.isDone()) {
+                call.run();
+            }
+        }, estimatedTokens);
+        synchronized (pendingCalls) {
+            pendingCalls.addLast(pending);
+        }
+        future.whenComplete((result, error) -> {
+            boolean started;
+            synchronized (pendingCalls) {
+                // Still queued means it never started, so it holds no slot
+                started = !pendingCalls.remove(pending);
+                if (started) {
+                    runningCalls--;
+                }
+            }
+            if (started && result != null && result != CANCELLED) {
+                adapt(result);
+                settle(estimatedTokens, result);
+            }
+            drainPendingCalls();
+        });
+        drainPendingCalls();
+    }
+
+    private void drainPendingCalls() {
+        while (true) {
+            PendingCall next;
+            synchronized (pendingCalls) {
+                if (pendingCalls.isEmpty() || runningCalls >= concurrencyLimit.get()) {
+                    return;
+                }
+                next = pendingCalls.removeFirst();
+                runningCalls++;
+            }
+            // The call holds its slot while it waits for the rate limit
+            long wait = rateLimiter.reserve(next.estimatedTokens);
+            if (wait > 0) {
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, asyncExecutor).execute(next.task);
+            } else {
+                next.task.run();
+            }
+        }
+    }
+
+    private void adapt(ChatResult result) {
+        if (result.isThrottled()) {
+            concurrencyLimit.onThrottled();
+        } else if (result.hasError()) {
+            concurrencyLimit.onError();
+        } else {
+            concurrencyLimit.onSuccess(result.getElapsedMillis(), result.getOutputTokens());
+        }
+    }
+
+    private boolean acquire(int estimatedTokens) {
+        try {
+            rateLimiter.acquire(estimatedTokens);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ChatResult settle(int estimatedTokens, ChatResult result) {
+        int usedTokens = result.getInputTokens() + result.getOutputTokens();
+        // A failed call without usage was not billed; an answer without usage keeps its estimate
+        rateLimiter.settle(estimatedTokens, usedTokens > 0 || result.hasError() ? usedTokens : -1);
+        return result;
+    }
+
+    /**
+     * Stops the threads used to complete async calls
+     */
+    public void shutdown() {
+        asyncExecutor.shutdown();
+    }
+
+    /**
+     * Stream messages to the configured API endpoint, handing every text fragment to
+     * {@code onToken} as soon as it arrives.
+     *
+     * Uses incremental output so each event carries only the new fragment; the fragments
+     * are concatenated into the final answer text. Errors are reported on the returned
+     * result rather than thrown, mirroring {@link #send}.
+     */
+    public ChatResult streamMessages(List<Map<String, String>> messages, String model, Consumer<String> onToken) {
+        int estimatedTokens = TokenEstimator.estimateMessages(messages);
+        ChatResult result = null;
+        for (int retry = 0; result == null || (retry <= props.getMaxRetries() && result.isRetryable()); retry++) {
+            if (result != null && !sleep(backoffMillis(retry - 1))) {
+                break;
+            }
+            if (!acquire(estimatedTokens)) {
+                return ChatResult.failure("Interrupted while waiting for the rate limit");
             }
+            // Only a stream that failed before its first fragment is retryable
+            result = settle(estimatedTokens, stream(messages, model, onToken));
         }
+        return result;
+    }
+
+    private ChatResult stream(List<Map<String, String>> messages, String model, Consumer<String> onToken) {
+        StreamedAnswer answer = new StreamedAnswer(onToken);
+        try {
+            Flowable<GenerationResult> stream = generation.streamCall(streamParam(messages, model));
+            stream.blockingForEach(answer::accept);
+            return answer.toResult(null);
+        } catch (Exception ex) {
+            return answer.toResult(ex.getMessage());
+        }
+    }
+
+    private GenerationParam streamParam(List<Map<String, String>> messages, String model) {
+        return GenerationParam.builder()
+                .apiKey(props.getApi().getKey())
+                .model(model)
+                .messages(toDashscopeMessages(messages))
+                .resultFormat(GenerationParam.ResultFormat.MESSAGE)
+                .incrementalOutput(true)
+                .build();
+    }
+
+    /**
+     * The fragments of a stream as they arrive, with the figures for its result
+     */
+    private static final class StreamedAnswer {
+        private final Consumer<String> onToken;
+        private final StringBuilder text = new StringBuilder();
+        private final long start = System.nanoTime();
+        private long firstTokenAt = -1L;
+        private int chunks;
+        private GenerationResult last;
+
+        StreamedAnswer(Consumer<String> onToken) {
+            this.onToken = onToken;
+        }
+
+        void accept(GenerationResult result) {
+            String fragment = fragmentOf(result);
+            if (fragment != null && !fragment.isEmpty()) {
+                if (firstTokenAt < 0) {
+                    firstTokenAt = System.nanoTime();
+                }
+                chunks++;
+                text.append(fragment);
+                if (onToken != null) {
+                    onToken.accept(fragment);
+                }
+            }
+            last = result;
+        }
+
+        ChatResult toResult(String error) {
+            GenerationUsage usage = last != null ? last.getUsage() : null;
+            int inputTokens = usage != null && usage.getInputTokens() != null ? usage.getInputTokens() : 0;
+            int outputTokens = usage != null && usage.getOutputTokens() != null ? usage.getOutputTokens() : chunks;
+            return new ChatResult(text.toString(), finishReasonOf(last), last != null ? last.getRequestId() : null,
+                    inputTokens, outputTokens,
+                    error != null ? error : (last == null && chunks == 0 ? "Empty response" : null))
+                    .withTiming(millisSince(start, firstTokenAt), millisSince(start, System.nanoTime()));
+        }
+    }
+
+    private static ChatResult toChatResult(GenerationResult result) {
+        if (result == null) {
+            return ChatResult.failure("Empty response");
+        }
+        GenerationUsage usage = result.getUsage();
+        int inputTokens = usage != null && usage.getInputTokens() != null ? usage.getInputTokens() : 0;
+        int outputTokens = usage != null && usage.getOutputTokens() != null ? usage.getOutputTokens() : 0;
+        String text = fragmentOf(result);
+        String error = text == null ? "Response contained no message" : null;
+        return new ChatResult(text != null ? text : "", finishReasonOf(result), result.getRequestId(),
+                inputTokens, outputTokens, error);
+    }
+
+    private static String fragmentOf(GenerationResult result) {
+        if (result == null || result.getOutput() == null) {
+            return null;
+        }
+        List<GenerationOutput.Choice> choices = result.getOutput().getChoices();
+        if (choices != null && !choices.isEmpty() && choices.get(0).getMessage() != null) {
+            return choices.get(0).getMessage().getContent();
+        }
+        return result.getOutput().getText();
+    }
+
+    private static String finishReasonOf(GenerationResult result) {
+        if (result == null || result.getOutput() == null) {
+            return null;
+        }
+        List<GenerationOutput.Choice> choices = result.getOutput().getChoices();
+        if (choices != null && !choices.isEmpty() && choices.get(0).getFinishReason() != null) {
+            return choices.get(0).getFinishReason();
+        }
+        return result.getOutput().getFinishReason();
+    }
+
+    private static long millisSince(long start, long end) {
+        return end < 0 ? -1L : (end - start) / 1_000_000L;
+    }
+
+    private static List<Message> toDashscopeMessages(List<Map<String, String>> messages) {
+        // Convert the message format to Dashscope Message objects; ChatMessages keep theirs
+        List<Message> converted = new ArrayList<>(messages.size());
+        for (Map<String, String> msg : messages) {
+            if (msg instanceof ChatMessage) {
+                converted.add(((ChatMessage) msg).toSdkMessage());
+            } else {
+                converted.add(Message.builder()
+                        .role(msg.get("role"))
+                        .content(msg.get("content"))
+                        .build());
+            }
+        }
+        return converted;
     }
 
     /**
@@ -92,6 +629,10 @@ public class DashscopeClient {
             if (!errNode.isMissingNode() && errNode.isTextual()) {
                 return "Error: " + errNode.asText();
             }
+            errNode = json.path("error");
+            if (!errNode.isMissingNode() && errNode.isTextual()) {
+                return "Error: " + errNode.asText();
+            }
 
             // fallback: return whole JSON as pretty string
             return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
@@ -99,4 +640,4 @@ public class DashscopeClient {
             return "Error extracting text: " + ex.getMessage();
         }
     }
-}
\ No newline at end of file
+}
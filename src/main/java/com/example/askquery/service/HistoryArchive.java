@@ -0,0 +1,189 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Long-term history store made of immutable segments.
+ *
+ * Each segment is a pair of files named after the id of its first entry: {@code .seg}
+ * holds one JSON record per line, {@code .idx} the big-endian start offset of every record
+ * followed by the end of the last one. Both are read through {@link MappedByteBuffer}s, so
+ * the heap only holds a few numbers per segment and fetching an entry decodes just that
+ * record, however large the archive grows. A segment becomes visible once its index file
+ * has been moved into place; segments are never modified afterwards.
+ *
+ * Ids start at 0 for the oldest archived entry and increase by one per entry.
+ */
+public class HistoryArchive {
+
+    private static final String DATA_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private long[] bases = new long[0];
+    private MappedByteBuffer[] dataBuffers = new MappedByteBuffer[0];
+    private MappedByteBuffer[] indexBuffers = new MappedByteBuffer[0];
+    private long size;
+
+    /**
+     * Opens the archive in {@code directory}. Only segment sizes are read here; the
+     * directory is created when the first segment is written.
+     */
+    public HistoryArchive(Path directory) {
+        this.directory = directory;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> indexFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            stream.forEach(indexFiles::add);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not open history archive: " + e.getMessage());
+        }
+        indexFiles.sort(null);
+        for (Path indexFile : indexFiles) {
+            String name = indexFile.getFileName().toString();
+            try {
+                long base = Long.parseLong(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+                int count = (int) (Files.size(indexFile) / Long.BYTES - 1);
+                if (base == size && count > 0 && Files.exists(dataFile(base))) {
+                    addSegment(base, count);
+                }
+            } catch (NumberFormatException | IOException e) {
+                // Not a segment of ours, or unreadable; the entries it held are skipped
+            }
+        }
+    }
+
+    /**
+     * Writes the entries as a new segment at the end of the archive
+     */
+    public synchronized void append(List<HistoryEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long base = size;
+        long[] offsets = new long[entries.size() + 1];
+        Path dataTmp = Files.createTempFile(directory, "segment", DATA_SUFFIX + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(dataTmp), 1 << 16)) {
+            long offset = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                offsets[i] = offset;
+                byte[] record = objectMapper.writeValueAsBytes(entries.get(i));
+                out.write(record);
+                out.write('\n');
+                offset += record.length + 1;
+            }
+            offsets[entries.size()] = offset;
+        }
+        Path indexTmp = Files.createTempFile(directory, "segment", INDEX_SUFFIX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTmp)))) {
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+        Files.move(dataTmp, dataFile(base), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(indexTmp, indexFile(base), StandardCopyOption.REPLACE_EXISTING);
+        addSegment(base, entries.size());
+    }
+
+    /**
+     * Number of archived entries
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Reads the entry with the given id, touching only its own record
+     * @throws IndexOutOfBoundsException if no entry has that id
+     */
+    public synchronized HistoryEntry get(long id) throws IOException {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No archived entry " + id + " (size " + size + ")");
+        }
+        int segment = Arrays.binarySearch(bases, id);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        int record = (int) (id - bases[segment]);
+        MappedByteBuffer index = indexBuffer(segment);
+        long start = index.getLong(record * Long.BYTES);
+        long end = index.getLong((record + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (end - start)];
+        dataBuffer(segment).get((int) start, bytes);
+        return objectMapper.readValue(bytes, HistoryEntry.class);
+    }
+
+    /**
+     * Reads up to {@code count} consecutive entries starting at id {@code from}, oldest first
+     */
+    public synchronized List<HistoryEntry> page(long from, int count) throws IOException {
+        List<HistoryEntry> entries = new ArrayList<>(Math.max(0, count));
+        for (long id = Math.max(0, from); id < size && entries.size() < count; id++) {
+            entries.add(get(id));
+        }
+        return entries;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void addSegment(long base, int count) {
+        int n = bases.length;
+        bases = Arrays.copyOf(bases, n + 1);
+        dataBuffers = Arrays.copyOf(dataBuffers, n + 1);
+        indexBuffers = Arrays.copyOf(indexBuffers, n + 1);
+        bases[n] = base;
+        size = base + count;
+    }
+
+    private MappedByteBuffer dataBuffer(int segment) throws IOException {
+        if (dataBuffers[segment] == null) {
+            dataBuffers[segment] = map(dataFile(bases[segment]));
+        }
+        return dataBuffers[segment];
+    }
+
+    private MappedByteBuffer indexBuffer(int segment) throws IOException {
+        if (indexBuffers[segment] == null) {
+            indexBuffers[segment] = map(indexFile(bases[segment]));
+        }
+        return indexBuffers[segment];
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private Path dataFile(long base) {
+        return directory.resolve(String.format("%016d%s", base, DATA_SUFFIX));
+    }
+
+    private Path indexFile(long base) {
+        return directory.resolve(String.format("%016d%s", base, INDEX_SUFFIX));
+    }
+}
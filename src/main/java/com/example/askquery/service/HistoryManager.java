@@ -1,136 +1,834 @@
 package com.example.askquery.service;
 
 import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.model.QuestionMatch;
+import com.example.askquery.util.AnswerCompressor;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Stores history as an append-only log with one JSON record per line.
+ * Adding an entry appends a single line; retention by count and age is applied
+ * when reading and enforced on disk by a background compaction.
+ *
+ * Reads are served from an immutable in-memory snapshot. The snapshot is updated in
+ * place by {@link #addEntry} and only re-read from disk when the file's size, mtime or
+ * identity changes, e.g. because another process appended to it.
+ *
+ * When archiving is enabled, entries that fall out of retention are moved into a
+ * {@link HistoryArchive} next to the log instead of being discarded.
+ *
+ * With answer compression enabled, long answers are stored deflated both in the log and
+ * in the snapshot, and are only inflated when {@link HistoryEntry#getAnswer()} is called.
+ */
 public class HistoryManager {
+    private static final String DICTIONARY_SUFFIX = ".dict";
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+    private static final int DICTIONARY_MIN_SAMPLES = 50;
+    private static final int DICTIONARY_MAX_SAMPLES = 1000;
+
     private final String historyFilePath;
     private final ObjectMapper objectMapper;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final int maxHistorySize;
-    
+    private final int maxAgeDays;
+    // Receives evicted entries; null when evicted entries are discarded
+    private final HistoryArchive archive;
+    // Null while answers are stored as plain text
+    private volatile AnswerCompressor answerCompressor;
+    private boolean trainDictionary;
+
+    // Lines currently in the log, used to decide when compaction is worth running
+    private int lineCount;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "history-compaction");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Immutable view of the retained entries and the file state it reflects
+    private volatile List<HistoryEntry> snapshot;
+    private volatile QuestionIndex questionIndex;
+    // Built on the first near-duplicate lookup, since signatures cost more to compute
+    private volatile SimilarQuestionIndex similarIndex;
+    private FileStamp snapshotStamp;
+
+    // Set by the file watcher when the log changed on disk; while a watcher runs and this
+    // is clear, lookups skip even the metadata check
+    private volatile boolean dirty = true;
+    private volatile WatchService watchService;
+
     public HistoryManager(String historyFilePath, int maxHistorySize) {
+        this(historyFilePath, maxHistorySize, 0);
+    }
+
+    /**
+     * @param maxHistorySize number of most recent entries to keep
+     * @param maxAgeDays     entries older than this are dropped; 0 keeps entries of any age
+     */
+    public HistoryManager(String historyFilePath, int maxHistorySize, int maxAgeDays) {
+        this(historyFilePath, maxHistorySize, maxAgeDays, false);
+    }
+
+    /**
+     * @param maxHistorySize   number of most recent entries to keep
+     * @param maxAgeDays       entries older than this are dropped; 0 keeps entries of any age
+     * @param archiveEvicted   move dropped entries into a segmented archive in
+     *                         {@code <historyFilePath>.archive} instead of discarding them
+     */
+    public HistoryManager(String historyFilePath, int maxHistorySize, int maxAgeDays, boolean archiveEvicted) {
         this.historyFilePath = historyFilePath;
-        this.maxHistorySize = maxHistorySize;
-        
-        // Initialize ObjectMapper with pretty printing
+        this.maxHistorySize = Math.max(1, maxHistorySize);
+        this.maxAgeDays = Math.max(0, maxAgeDays);
+        this.archive = archiveEvicted ? new HistoryArchive(Paths.get(historyFilePath + ".archive")) : null;
+
+        // Compact output keeps every record on a single line
         this.objectMapper = new ObjectMapper();
-        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
-        
-        // Ensure the history file exists
+
+        this.questionIndex = new QuestionIndex(this.maxHistorySize);
+
+        // Entries compressed with a dictionary stay readable even with compression turned off
+        byte[] dictionary = readDictionary();
+        if (dictionary != null) {
+            AnswerCompressor.registerDictionary(dictionary);
+        }
+
+        // Ensure the history file exists and is in the line-oriented format
         ensureHistoryFile();
+        migrateLegacyFormat();
+        this.lineCount = countLines();
     }
-    
+
     /**
-     * Ensures the history file exists, creating it with an empty array if necessary
+     * Ensures the history file exists, creating an empty log if necessary
      */
     private void ensureHistoryFile() {
         try {
             Path path = Paths.get(historyFilePath);
             Path parent = path.getParent();
-            
+
             if (parent != null && !Files.exists(parent)) {
                 Files.createDirectories(parent);
             }
-            
+
             if (!Files.exists(path)) {
-                Files.write(path, "[]".getBytes());
+                Files.createFile(path);
             }
         } catch (IOException e) {
             System.err.println("Warning: Could not create history file: " + e.getMessage());
         }
     }
-    
+
     /**
-     * Loads all history entries from the JSON file
+     * Converts a history file written as a single pretty-printed JSON array into the
+     * one-record-per-line format. The original file is kept next to it with a .bak suffix.
      */
-    public List<HistoryEntry> loadHistory() {
-        lock.readLock().lock();
+    private void migrateLegacyFormat() {
+        Path path = Paths.get(historyFilePath);
+        if (!isLegacyArrayFile(path)) {
+            return;
+        }
+        lock.writeLock().lock();
         try {
-            File file = new File(historyFilePath);
-            if (!file.exists() || file.length() == 0) {
-                return new ArrayList<>();
+            List<HistoryEntry> legacy = objectMapper.readValue(path.toFile(), new TypeReference<List<HistoryEntry>>() {});
+            Files.copy(path, Paths.get(historyFilePath + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+            List<HistoryEntry> kept = retain(legacy);
+            archiveEvicted(legacy, kept);
+            writeLog(kept);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not migrate history file: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isLegacyArrayFile(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            int c;
+            while ((c = in.read()) != -1) {
+                if (!Character.isWhitespace(c)) {
+                    return c == '[';
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    private int countLines() {
+        Path path = Paths.get(historyFilePath);
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int count = 0;
+            while (reader.readLine() != null) {
+                count++;
             }
-            
-            return objectMapper.readValue(file, new TypeReference<List<HistoryEntry>>() {});
+            return count;
         } catch (IOException e) {
-            System.err.println("Warning: Could not load history file: " + e.getMessage());
-            return new ArrayList<>();
+            return 0;
         } finally {
             lock.readLock().unlock();
         }
     }
-    
+
     /**
-     * Adds a new entry to the history, maintaining the maximum size limit
+     * Returns all retained history entries, oldest first, as an unmodifiable list.
+     * Served from memory unless the log changed on disk since the last call.
      */
-    public void addEntry(HistoryEntry entry) {
+    public List<HistoryEntry> loadHistory() {
+        ensureFresh();
+        return snapshot;
+    }
+
+    /**
+     * Returns the latest answered entry whose question matches {@code question} after
+     * normalization (case, whitespace, punctuation, full-width forms), or null.
+     * Served from an in-memory hash index; questions never asked are usually rejected by
+     * its Bloom filter without a map lookup.
+     */
+    public HistoryEntry findByQuestion(String question) {
+        ensureFresh();
+        return questionIndex.find(question);
+    }
+
+    /**
+     * Finds a history answer for {@code question}: first a normalized match, then, if
+     * {@code similarityThreshold} is above 0, the most similar earlier question whose
+     * shingle similarity reaches the threshold.
+     * @return the match, or null when neither lookup finds one
+     */
+    public QuestionMatch findMatch(String question, double similarityThreshold) {
+        HistoryEntry entry = findByQuestion(question);
+        if (entry != null) {
+            return new QuestionMatch(entry, 1.0, entry.getQuestion().equals(question));
+        }
+        if (similarityThreshold <= 0 || similarityThreshold > 1) {
+            return null;
+        }
+        SimilarQuestionIndex index = similarIndex;
+        if (index == null) {
+            lock.writeLock().lock();
+            try {
+                if (similarIndex == null) {
+                    similarIndex = SimilarQuestionIndex.build(snapshot);
+                }
+                index = similarIndex;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return index.findSimilar(question, similarityThreshold);
+    }
+
+    private void ensureFresh() {
+        if (snapshot != null && watchService != null && !dirty) {
+            return;
+        }
         lock.writeLock().lock();
         try {
-            List<HistoryEntry> history = loadHistory();
-            
-            // Add the new entry
-            history.add(entry);
-            
-            // Keep only the latest maxHistorySize entries
-            if (history.size() > maxHistorySize) {
-                int startIndex = history.size() - maxHistorySize;
-                history = history.subList(startIndex, history.size());
-            }
-            
-            // Save the updated history back to the file
-            saveHistory(history);
+            refreshSnapshot();
         } finally {
             lock.writeLock().unlock();
         }
     }
-    
+
     /**
-     * Saves the entire history list to the JSON file
+     * Brings the snapshot in line with the file. Appends by other processes are read
+     * from the last known offset; any other change reloads the whole log.
+     * Callers must hold the write lock.
      */
-    private void saveHistory(List<HistoryEntry> history) {
+    private void refreshSnapshot() {
+        dirty = false;
+        Path path = Paths.get(historyFilePath);
+        FileStamp current = FileStamp.of(path);
+        if (snapshot != null && current != null && current.equals(snapshotStamp)) {
+            return;
+        }
         try {
-            objectMapper.writeValue(new File(historyFilePath), history);
+            if (snapshot != null && current != null && snapshotStamp != null
+                    && current.isSameFile(snapshotStamp) && current.size > snapshotStamp.size) {
+                List<HistoryEntry> appended = new ArrayList<>();
+                long consumed = readLogFrom(snapshotStamp.size, appended);
+                appendToSnapshot(appended);
+                // A partially written last line is picked up once it is complete
+                snapshotStamp = consumed == current.size - snapshotStamp.size
+                        ? current : current.withSize(snapshotStamp.size + consumed);
+            } else {
+                List<HistoryEntry> all = readLog();
+                replaceSnapshot(retain(all));
+                snapshotStamp = current;
+                if (hasAgedOut(all)) {
+                    // Entries past the age limit leave the log (and go to the archive) now,
+                    // not only once it has also outgrown the count limit
+                    scheduleCompaction();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load history file: " + e.getMessage());
+            if (snapshot == null) {
+                replaceSnapshot(Collections.emptyList());
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot and rebuilds the question index. Callers must hold the write lock.
+     */
+    private void replaceSnapshot(List<HistoryEntry> entries) {
+        List<HistoryEntry> copy = Collections.unmodifiableList(new ArrayList<>(entries));
+        questionIndex = QuestionIndex.build(copy, maxHistorySize);
+        similarIndex = null;
+        snapshot = copy;
+    }
+
+    /**
+     * Adds entries to the end of the snapshot, dropping the oldest ones beyond the count
+     * limit and keeping the question index in step. Age limits are applied when the log
+     * is reloaded or compacted. Callers must hold the write lock.
+     */
+    private void appendToSnapshot(List<HistoryEntry> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        List<HistoryEntry> updated = new ArrayList<>(snapshot.size() + added.size());
+        updated.addAll(snapshot);
+        updated.addAll(added);
+        int overflow = updated.size() - maxHistorySize;
+        if (overflow > 0) {
+            List<HistoryEntry> dropped = updated.subList(0, overflow);
+            SimilarQuestionIndex similar = similarIndex;
+            for (HistoryEntry entry : dropped) {
+                questionIndex.remove(entry);
+                if (similar != null) {
+                    similar.remove(entry);
+                }
+            }
+            dropped.clear();
+        }
+        SimilarQuestionIndex similar = similarIndex;
+        for (HistoryEntry entry : added) {
+            questionIndex.put(entry);
+            if (similar != null) {
+                similar.put(entry);
+            }
+        }
+        snapshot = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * Reads complete records appended after {@code offset} into {@code entries}
+     * and returns the number of bytes consumed
+     */
+    private long readLogFrom(long offset, List<HistoryEntry> entries) throws IOException {
+        byte[] tail;
+        try (FileChannel channel = FileChannel.open(Paths.get(historyFilePath), StandardOpenOption.READ)) {
+            long length = channel.size() - offset;
+            if (length <= 0) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            tail = Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        int end = tail.length;
+        while (end > 0 && tail[end - 1] != '\n') {
+            end--;
+        }
+        String text = new String(tail, 0, end, StandardCharsets.UTF_8);
+        for (String line : text.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                entries.add(objectMapper.readValue(line, HistoryEntry.class));
+            } catch (IOException e) {
+                // A torn or hand-edited line should not hide the rest of the history
+            }
+        }
+        return end;
+    }
+
+    private List<HistoryEntry> readLog() throws IOException {
+        Path path = Paths.get(historyFilePath);
+        List<HistoryEntry> entries = new ArrayList<>();
+        if (!Files.isRegularFile(path)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(objectMapper.readValue(line, HistoryEntry.class));
+                } catch (IOException e) {
+                    // A torn or hand-edited line should not hide the rest of the history
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Applies the age and count limits, keeping the newest entries
+     */
+    private List<HistoryEntry> retain(List<HistoryEntry> entries) {
+        List<HistoryEntry> kept = entries;
+        if (maxAgeDays > 0) {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+            kept = new ArrayList<>(entries.size());
+            for (HistoryEntry entry : entries) {
+                if (!isOlderThan(entry, cutoff)) {
+                    kept.add(entry);
+                }
+            }
+        }
+        if (kept.size() > maxHistorySize) {
+            kept = new ArrayList<>(kept.subList(kept.size() - maxHistorySize, kept.size()));
+        }
+        return kept;
+    }
+
+    /**
+     * True when some of the entries are past the age limit
+     */
+    private boolean hasAgedOut(List<HistoryEntry> entries) {
+        if (maxAgeDays == 0) {
+            return false;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        for (HistoryEntry entry : entries) {
+            if (isOlderThan(entry, cutoff)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOlderThan(HistoryEntry entry, LocalDateTime cutoff) {
+        if (entry.getTimestamp() == null) {
+            return false;
+        }
+        try {
+            return LocalDateTime.parse(entry.getTimestamp()).isBefore(cutoff);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends a new entry to the log. Older entries beyond the retention limits are
+     * removed later by a background compaction.
+     */
+    public void addEntry(HistoryEntry entry) {
+        addEntries(Collections.singletonList(entry));
+    }
+
+    /**
+     * Appends several entries to the log with a single write, in order
+     */
+    public void addEntries(List<HistoryEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            AnswerCompressor compressor = answerCompressor;
+            StringBuilder lines = new StringBuilder();
+            for (HistoryEntry entry : entries) {
+                if (compressor != null) {
+                    entry.compressAnswer(compressor);
+                }
+                lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+            }
+            byte[] line = lines.toString().getBytes(StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(Paths.get(historyFilePath),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                boolean snapshotCurrent = snapshot != null && snapshotStamp != null && snapshotStamp.size == size;
+                // Terminate a torn last record so it cannot swallow the new one
+                if (size > 0) {
+                    ByteBuffer lastByte = ByteBuffer.allocate(1);
+                    channel.read(lastByte, size - 1);
+                    if (lastByte.get(0) != '\n') {
+                        channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size++);
+                    }
+                }
+                while (buffer.hasRemaining()) {
+                    size += channel.write(buffer, size);
+                }
+                if (snapshotCurrent) {
+                    appendToSnapshot(entries);
+                    snapshotStamp = FileStamp.of(Paths.get(historyFilePath));
+                } else {
+                    dirty = true;
+                }
+            }
+            lineCount += entries.size();
         } catch (IOException e) {
             System.err.println("Warning: Could not save history file: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        maybeScheduleCompaction();
+    }
+
+    /**
+     * Schedules a compaction once the log holds noticeably more lines than are retained,
+     * so the rewrite cost is spread over many appends
+     */
+    private void maybeScheduleCompaction() {
+        int slack = Math.max(50, maxHistorySize / 10);
+        if (lineCount > maxHistorySize + slack) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.submit(() -> {
+                try {
+                    compact();
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rewrites the log with only the retained entries, archiving the others if enabled
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            List<HistoryEntry> all = readLog();
+            List<HistoryEntry> kept = retain(all);
+            archiveEvicted(all, kept);
+            compressAnswers(kept);
+            writeLog(kept);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not compact history file: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Enables or disables compression of stored answers. Entries already in the log are
+     * compressed by the next compaction.
+     * @param useDictionary compress with a preset dictionary trained on past answers, kept
+     *                      in {@code <historyFilePath>.dict}; it is trained by the first
+     *                      compaction that sees enough answers and never changes afterwards
+     */
+    public void setAnswerCompression(boolean enabled, boolean useDictionary) {
+        lock.writeLock().lock();
+        try {
+            if (!enabled) {
+                answerCompressor = null;
+                trainDictionary = false;
+                return;
+            }
+            byte[] dictionary = useDictionary ? readDictionary() : null;
+            answerCompressor = new AnswerCompressor(dictionary);
+            trainDictionary = useDictionary && dictionary == null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private byte[] readDictionary() {
+        Path path = Paths.get(historyFilePath + DICTIONARY_SUFFIX);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read compression dictionary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Compresses the plain answers among the entries, first training the dictionary if
+     * one is wanted and there are enough answers to learn from. Callers must hold the
+     * write lock.
+     */
+    private void compressAnswers(List<HistoryEntry> entries) throws IOException {
+        if (answerCompressor == null) {
+            return;
+        }
+        if (trainDictionary && entries.size() >= DICTIONARY_MIN_SAMPLES) {
+            List<String> samples = new ArrayList<>();
+            for (int i = entries.size() - 1; i >= 0 && samples.size() < DICTIONARY_MAX_SAMPLES; i--) {
+                if (entries.get(i).hasAnswer()) {
+                    samples.add(entries.get(i).getAnswer());
+                }
+            }
+            byte[] dictionary = AnswerCompressor.trainDictionary(samples, DICTIONARY_SIZE);
+            if (dictionary.length > 0) {
+                // Written before any entry depends on it
+                Path path = Paths.get(historyFilePath + DICTIONARY_SUFFIX);
+                Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+                Files.write(tmp, dictionary);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                answerCompressor = new AnswerCompressor(dictionary);
+                trainDictionary = false;
+            }
+        }
+        for (HistoryEntry entry : entries) {
+            entry.compressAnswer(answerCompressor);
+        }
+    }
+
+    /**
+     * Appends the entries of {@code all} missing from {@code kept} to the archive. Runs
+     * before the log is rewritten, so a failure in between duplicates entries in the
+     * archive rather than losing them. Callers must hold the write lock.
+     */
+    private void archiveEvicted(List<HistoryEntry> all, List<HistoryEntry> kept) throws IOException {
+        if (archive == null || kept.size() == all.size()) {
+            return;
+        }
+        Set<HistoryEntry> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+        retained.addAll(kept);
+        List<HistoryEntry> evicted = new ArrayList<>(all.size() - kept.size());
+        for (HistoryEntry entry : all) {
+            if (!retained.contains(entry)) {
+                evicted.add(entry);
+            }
+        }
+        archive.append(evicted);
+    }
+
+    /**
+     * Writes the entries to a temporary file and atomically replaces the log with it.
+     * Callers must hold the write lock.
+     */
+    private void writeLog(List<HistoryEntry> entries) throws IOException {
+        Path path = Paths.get(historyFilePath);
+        Path parent = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (HistoryEntry entry : entries) {
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.newLine();
+            }
         }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        lineCount = entries.size();
+        replaceSnapshot(entries);
+        snapshotStamp = FileStamp.of(path);
     }
-    
+
     /**
      * Clears all history entries
      */
     public void clearHistory() {
         lock.writeLock().lock();
         try {
-            saveHistory(Collections.emptyList());
+            Files.write(Paths.get(historyFilePath), new byte[0]);
+            lineCount = 0;
+            replaceSnapshot(Collections.emptyList());
+            snapshotStamp = FileStamp.of(Paths.get(historyFilePath));
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save history file: " + e.getMessage());
         } finally {
             lock.writeLock().unlock();
         }
     }
-    
+
+    /**
+     * Starts watching the history file so that changes made by other processes mark the
+     * snapshot stale. While the watcher runs, lookups of an unchanged history do no file
+     * system access at all.
+     */
+    public synchronized void startWatching() {
+        if (watchService != null) {
+            return;
+        }
+        Path path = Paths.get(historyFilePath).toAbsolutePath();
+        Path dir = path.getParent();
+        if (dir == null) {
+            return;
+        }
+        try {
+            WatchService service = dir.getFileSystem().newWatchService();
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            Path fileName = path.getFileName();
+            Thread watcher = new Thread(() -> watchLoop(service, fileName), "history-watcher");
+            watcher.setDaemon(true);
+            dirty = true;
+            watchService = service;
+            watcher.start();
+        } catch (IOException e) {
+            // Without a watcher every lookup falls back to comparing size and mtime
+            System.err.println("Warning: Could not watch history file: " + e.getMessage());
+        }
+    }
+
+    private void watchLoop(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                        dirty = true;
+                    }
+                }
+                if (!key.reset()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher stopped
+        } finally {
+            // Fall back to metadata checks on every lookup
+            synchronized (this) {
+                if (watchService == service) {
+                    watchService = null;
+                }
+            }
+            dirty = true;
+        }
+    }
+
+    /**
+     * Stops the file watcher, if running
+     */
+    public synchronized void stopWatching() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Size, modification time and identity of the log file at one point in time
+     */
+    private static final class FileStamp {
+        final long size;
+        final long modifiedMillis;
+        final Object fileKey;
+
+        private FileStamp(long size, long modifiedMillis, Object fileKey) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.fileKey = fileKey;
+        }
+
+        static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attrs.size(), attrs.lastModifiedTime().toMillis(), attrs.fileKey());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        FileStamp withSize(long newSize) {
+            return new FileStamp(newSize, modifiedMillis, fileKey);
+        }
+
+        boolean isSameFile(FileStamp other) {
+            // Without file keys (e.g. on Windows) a replaced file cannot be told apart
+            return fileKey != null && fileKey.equals(other.fileKey);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return size == other.size && modifiedMillis == other.modifiedMillis
+                    && Objects.equals(fileKey, other.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modifiedMillis, fileKey);
+        }
+    }
+
     /**
      * Gets the current history file path
      */
     public String getHistoryFilePath() {
         return historyFilePath;
     }
-    
+
     /**
      * Gets the maximum number of history entries allowed
      */
     public int getMaxHistorySize() {
         return maxHistorySize;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the archive of evicted entries, or null if archiving is disabled
+     */
+    public HistoryArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Gets the maximum age of retained entries in days, 0 meaning unlimited
+     */
+    public int getMaxAgeDays() {
+        return maxAgeDays;
+    }
+}
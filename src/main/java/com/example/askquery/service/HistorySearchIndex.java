@@ -0,0 +1,278 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index over history questions and answers with BM25 ranking.
+ *
+ * Every entry gets an int document id; each term keeps its postings as parallel int arrays
+ * of document ids and term frequencies. The index follows the history snapshot
+ * incrementally: {@link #sync(List)} only tokenizes entries it has not seen before and
+ * tombstones the ones that dropped out, compacting once tombstones outnumber live entries.
+ *
+ * Latin text is split into letter/digit words; Chinese, Japanese and Korean runs are
+ * indexed as overlapping character bigrams plus single characters, so that one-character
+ * queries still match. Not thread-safe; the owner serializes access.
+ */
+public class HistorySearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Question terms count double, so hits in the question outrank hits buried in an answer
+    private static final int QUESTION_WEIGHT = 2;
+    private static final int MIN_COMPACT_DELETIONS = 1024;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<HistoryEntry, Integer> docIds = new IdentityHashMap<>();
+    private final List<HistoryEntry> docs = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private int[] docLengths = new int[64];
+    private int[] seenStamps = new int[64];
+    private int stamp;
+    private long liveLength;
+    private int liveCount;
+    private List<HistoryEntry> lastSynced;
+
+    /**
+     * Brings the index in line with the given entries, which are expected to be the
+     * current history snapshot
+     */
+    public void sync(List<HistoryEntry> entries) {
+        if (entries == lastSynced) {
+            return;
+        }
+        stamp++;
+        for (HistoryEntry entry : entries) {
+            Integer docId = docIds.get(entry);
+            if (docId == null) {
+                docId = add(entry);
+            }
+            seenStamps[docId] = stamp;
+        }
+        for (int docId = live.nextSetBit(0); docId >= 0; docId = live.nextSetBit(docId + 1)) {
+            if (seenStamps[docId] != stamp) {
+                delete(docId);
+            }
+        }
+        int deleted = docs.size() - liveCount;
+        if (deleted > MIN_COMPACT_DELETIONS && deleted > liveCount) {
+            clear();
+            for (HistoryEntry entry : entries) {
+                add(entry);
+            }
+        }
+        lastSynced = entries;
+    }
+
+    /**
+     * Returns up to {@code limit} entries containing every query term, best BM25 score
+     * first; equal scores favour the more recent entry
+     */
+    public List<HistoryEntry> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query, false)));
+        if (terms.isEmpty() || liveCount == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists.add(list);
+        }
+        // Rarest term first, so the candidate set starts as small as possible
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int docCount = docs.size();
+        double[] scores = new double[docCount];
+        int[] matched = new int[docCount];
+        double avgLength = Math.max(1.0, (double) liveLength / liveCount);
+        for (int t = 0; t < lists.size(); t++) {
+            Postings list = lists.get(t);
+            double idf = Math.log(1 + (liveCount - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int docId = list.docs[i];
+                if (matched[docId] != t || !live.get(docId)) {
+                    continue;
+                }
+                int tf = list.freqs[i];
+                double norm = K1 * (1 - B + B * docLengths[docId] / avgLength);
+                scores[docId] += idf * tf * (K1 + 1) / (tf + norm);
+                matched[docId]++;
+            }
+        }
+
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> compare(scores, a, b));
+        int required = lists.size();
+        for (int docId = 0; docId < docCount; docId++) {
+            if (matched[docId] != required) {
+                continue;
+            }
+            top.offer(docId);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        HistoryEntry[] results = new HistoryEntry[top.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            results[i] = docs.get(top.poll());
+        }
+        return Arrays.asList(results);
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Splits text into query terms: lowercased letter/digit words, with CJK runs turned
+     * into overlapping bigrams (a lone CJK character becomes a term of its own)
+     */
+    static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * Same as {@link #tokenize(String)}, optionally also emitting every CJK character of
+     * longer runs as a unigram, which is how documents are indexed
+     */
+    private static List<String> tokenize(String text, boolean withUnigrams) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int length = folded.length();
+        int i = 0;
+        while (i < length) {
+            int cp = folded.codePointAt(i);
+            if (isCjk(cp)) {
+                int start = i;
+                List<Integer> offsets = new ArrayList<>();
+                while (i < length && isCjk(folded.codePointAt(i))) {
+                    offsets.add(i);
+                    i += Character.charCount(folded.codePointAt(i));
+                }
+                offsets.add(i);
+                if (offsets.size() == 2) {
+                    terms.add(folded.substring(start, i));
+                } else {
+                    if (withUnigrams) {
+                        for (int k = 0; k + 1 < offsets.size(); k++) {
+                            terms.add(folded.substring(offsets.get(k), offsets.get(k + 1)));
+                        }
+                    }
+                    for (int k = 0; k + 2 < offsets.size(); k++) {
+                        terms.add(folded.substring(offsets.get(k), offsets.get(k + 2)));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < length) {
+                    int c = folded.codePointAt(i);
+                    if (!Character.isLetterOrDigit(c) || isCjk(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                terms.add(folded.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static int compare(double[] scores, int a, int b) {
+        int byScore = Double.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore : Integer.compare(a, b);
+    }
+
+    private int add(HistoryEntry entry) {
+        int docId = docs.size();
+        docs.add(entry);
+        docIds.put(entry, docId);
+        if (docId == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, docId * 2);
+            seenStamps = Arrays.copyOf(seenStamps, docId * 2);
+        }
+
+        Map<String, Integer> freqs = new HashMap<>();
+        int docLength = 0;
+        for (String term : tokenize(entry.getQuestion(), true)) {
+            freqs.merge(term, QUESTION_WEIGHT, Integer::sum);
+            docLength += QUESTION_WEIGHT;
+        }
+        for (String term : tokenize(entry.getAnswer(), true)) {
+            freqs.merge(term, 1, Integer::sum);
+            docLength++;
+        }
+        for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(docId, e.getValue());
+        }
+        docLengths[docId] = docLength;
+        seenStamps[docId] = stamp;
+        live.set(docId);
+        liveLength += docLength;
+        liveCount++;
+        return docId;
+    }
+
+    private void delete(int docId) {
+        live.clear(docId);
+        docIds.remove(docs.get(docId));
+        docs.set(docId, null);
+        liveLength -= docLengths[docId];
+        liveCount--;
+    }
+
+    private void clear() {
+        postings.clear();
+        docIds.clear();
+        docs.clear();
+        live.clear();
+        liveLength = 0;
+        liveCount = 0;
+    }
+
+    /**
+     * Document ids in increasing order with their term frequencies
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int docId, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = docId;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+}
@@ -2,12 +2,16 @@ package com.example.askquery.service;
 
 import com.example.askquery.config.AppProperties;
 import com.example.askquery.config.DashscopeProperties;
+import com.example.askquery.model.ChatMessage;
+import com.example.askquery.model.ChatResult;
 import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.model.QuestionMatch;
 import com.example.askquery.util.AnsiColors;
+import com.example.askquery.util.AnswerRenderer;
+import com.example.askquery.util.BrowserLauncher;
 import com.example.askquery.util.BatRenderer;
-import com.example.askquery.util.FilenameUtils;
-import com.example.askquery.util.MarkdownRenderer;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.askquery.util.QuestionNormalizer;
+import com.example.askquery.util.StreamingMarkdownRenderer;
 import org.jline.reader.EndOfFileException;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
@@ -24,25 +28,37 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class InteractiveService {
 
+    private static final String FORCE_FRESH_PREFIX = "!";
+
     private final AppProperties appProps;
     private final DashscopeProperties dashProps;
     private final DashscopeClient client;
     private final HistoryManager historyManager;
     private final SearchHistoryService searchHistoryService;
-
-    private final Deque<Map<String, String>> convo = new ArrayDeque<>();
+    private final SideEffectPipeline sideEffects;
+    private final QuestionExporter questionExporter = new QuestionExporter(Paths.get("questions"));
+    private final AnswerServer answerServer;
+
+    private final ContextWindow context = new ContextWindow();
+    private final SingleFlight<Void> questionsInFlight = new SingleFlight<>();
+    // Folds older rounds into a summary; null unless enabled
+    private final ConversationSummarizer summarizer;
     private final List<Entry> entries = new ArrayList<>();
     private final ExecutorService executor;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
     private final boolean parallelMode;
     private final List<String> exits;
 
@@ -50,16 +66,27 @@ public class InteractiveService {
         this.appProps = appProps;
         this.dashProps = dashProps;
         this.client = client;
-        this.historyManager = new HistoryManager(appProps.getHistoryFile(), 100); // Keep latest 100 records
+        this.historyManager = new HistoryManager(appProps.getHistoryFile(),
+                appProps.getHistorySize(), appProps.getHistoryMaxAgeDays(),
+                appProps.isHistoryArchive());
+        this.historyManager.setAnswerCompression(appProps.isCompressAnswers(), appProps.isCompressionDictionary());
+        this.sideEffects = new SideEffectPipeline(this.historyManager);
+        this.summarizer = appProps.isContextSummary()
+                ? new ConversationSummarizer(context, client, appProps.getSummaryModel()) : null;
         this.parallelMode = appProps.isParallel();
         int threads = Math.max(1, appProps.getConcurrency());
         this.executor = parallelMode ? Executors.newFixedThreadPool(threads) : null;
+        if (parallelMode) {
+            client.setMaxConcurrentRequests(threads);
+        }
 
         // Initialize bat command path from configuration
         BatRenderer.setBatCommand(appProps.getBatCommand());
 
         // Initialize search history service
-        this.searchHistoryService = new SearchHistoryService(this.historyManager, this.appProps);
+        this.answerServer = new AnswerServer(this.historyManager);
+        this.searchHistoryService = new SearchHistoryService(this.historyManager, this.appProps, this.questionExporter);
+        this.searchHistoryService.setAnswerServer(this.answerServer);
         
         // Initialize exit commands list
         this.exits = Arrays.stream(appProps.getExitCommands().split(","))
@@ -75,6 +102,8 @@ public class InteractiveService {
     private static class Entry {
         final String question;
         String answer;
+        // Answer kept in history, inflated only if this entry is opened
+        volatile HistoryEntry stored;
 
         Entry(String q) {
             this.question = q;
@@ -84,6 +113,10 @@ public class InteractiveService {
         void setAnswer(String a) {
             this.answer = a;
         }
+
+        String answer() {
+            return answer != null || stored == null ? answer : stored.getAnswer();
+        }
     }
 
     /**
@@ -107,7 +140,7 @@ public class InteractiveService {
             entries.clear();
             for (HistoryEntry historyEntry : historyEntries) {
                 Entry entry = new Entry(historyEntry.getQuestion());
-                entry.setAnswer(historyEntry.getAnswer());
+                entry.stored = historyEntry;
                 entries.add(entry);
             }
         }
@@ -124,6 +157,18 @@ public class InteractiveService {
 
         ensureHistoryFile(jlineHistPath);
 
+        // Pick up history written by other sessions without re-reading the file on every lookup
+        historyManager.startWatching();
+
+        if (appProps.isAnswerServer()) {
+            try {
+                answerServer.start(appProps.getAnswerServerPort());
+            } catch (IOException e) {
+                System.err.println("Warning: Could not start the answer server, answers will be opened from files: "
+                        + e.getMessage());
+            }
+        }
+
         Terminal terminal = TerminalBuilder.builder()
                 .system(true)
                 .build();
@@ -177,6 +222,7 @@ public class InteractiveService {
                 }
             } catch (Exception ignored) {
             }
+            awaitInFlight(5, TimeUnit.SECONDS);
             if (executor != null) {
                 executor.shutdown();
                 try {
@@ -184,6 +230,10 @@ public class InteractiveService {
                 } catch (InterruptedException ignored) {
                 }
             }
+            sideEffects.close(5, TimeUnit.SECONDS);
+            if (summarizer != null) {
+                summarizer.close(0, TimeUnit.SECONDS);
+            }
         }));
 
         if (initialQuery != null && !initialQuery.isBlank()) {
@@ -241,140 +291,274 @@ public class InteractiveService {
             submitAndMaybeWait(s, jsonHistPath, reader, exits);
         }
 
+        awaitInFlight(30, TimeUnit.SECONDS);
         if (executor != null) {
             executor.shutdown();
             executor.awaitTermination(30, TimeUnit.SECONDS);
         }
+        // History and exported files of the last answers may still be queued
+        sideEffects.close(30, TimeUnit.SECONDS);
+        if (summarizer != null) {
+            // A summary only matters for the next question, which will not come
+            summarizer.close(0, TimeUnit.SECONDS);
+        }
 
         try {
             history.save();
         } catch (Exception ignored) {
         }
+        historyManager.stopWatching();
+        answerServer.stop();
     }
 
 
-    private void submitAndMaybeWait(String query, String histPath, LineReader reader, List<String> exits) {
-        // First, check if the question already exists in history
-        HistoryEntry existingEntry = findExistingQuestion(query);
+    private void submitAndMaybeWait(String input, String histPath, LineReader reader, List<String> exits) {
+        // A leading '!' asks for a fresh answer even if history has a matching one
+        boolean forceFresh = input.startsWith(FORCE_FRESH_PREFIX);
+        String query = forceFresh ? input.substring(FORCE_FRESH_PREFIX.length()).trim() : input;
+        if (query.isEmpty()) {
+            return;
+        }
 
-        if (existingEntry != null) {
+        // First, check if the question (or a near-duplicate) already exists in history
+        QuestionMatch existingMatch = forceFresh ? null : findExistingQuestion(query);
+
+        if (existingMatch != null) {
             // Use existing answer from history
             if (!parallelMode) {
-                useExistingAnswer(query, existingEntry.getAnswer());
+                useExistingAnswer(query, existingMatch);
             } else {
                 // For parallel mode, submit to executor to maintain consistency
-                executor.submit(() -> useExistingAnswer(query, existingEntry.getAnswer()));
+                executor.submit(() -> useExistingAnswer(query, existingMatch));
             }
             return;
         }
 
         // If not found in history, proceed with the normal flow
-        synchronized (convo) {
-            convo.addLast(Map.of("role", "user", "content", query));
-            if (appProps.getContextLength() > 0) {
-                while (convo.size() > appProps.getContextLength() * 2) convo.removeFirst();
+        ContextWindow.Prompt prompt = buildPrompt(query);
+
+        if (parallelMode) {
+            // A question identical to one still waiting for its answer, in the same context,
+            // is not asked again; the answer arrives once
+            SingleFlight.Flight<Void> flight = questionsInFlight.join(flightKey(query, prompt),
+                    () -> askAsync(query, prompt));
+            if (flight.isShared()) {
+                System.out.println(AnsiColors.promptInfo("(The same question is already being answered)"));
+            } else {
+                trackInFlight(flight.getResult());
             }
+            return;
         }
 
+        printPromptSize(prompt);
         final Entry entry = new Entry(query);
         synchronized (entries) {
             entries.add(entry);
         }
 
-        if (!parallelMode) {
-            List<Map<String, String>> msgs = buildMessages(query);
-            JsonNode resp = client.sendMessages(msgs, dashProps.getModel());
-            String text = client.extractText(resp);
-            synchronized (convo) {
-                convo.addLast(Map.of("role", "assistant", "content", text));
-                if (appProps.getContextLength() > 0) {
-                    while (convo.size() > appProps.getContextLength() * 2) convo.removeFirst();
-                }
+        // With the answer server running, every request can be watched in the browser as it is generated
+        LiveAnswer live = startLiveAnswer(query);
+
+        List<Map<String, String>> msgs = prompt.getMessages();
+        ChatResult result;
+        if (appProps.isStreaming()) {
+            result = streamAnswer(msgs, live);
+        } else {
+            result = client.send(msgs, dashProps.getModel());
+            if (live != null) {
+                live.accept(result.getText());
             }
-            entry.setAnswer(text);
-            
-            // Render response using bat if available and configured, otherwise use plain text
-            if (appProps.isUseBatRendering() && BatRenderer.isBatAvailable()) {
-                System.out.println("[Answer]");
-                if (!BatRenderer.renderToTerminal(text, appProps.getBatTheme())) {
-                    // Fallback to plain text if bat rendering fails
-                    System.out.println(text);
-                }
-            } else {
-                System.out.println("[Answer] " + text);
+        }
+        if (live != null) {
+            live.finish();
+        }
+        if (result.hasError()) {
+            // A failed call is reported, not kept as an answer; a streamed answer cut off
+            // part way is shown but never kept, so it is not served again from history
+            if (!appProps.isStreaming()) {
+                printFailure(result);
+            }
+            synchronized (entries) {
+                entries.remove(entry);
             }
+            return;
+        }
+        String text = result.getDisplayText();
+        remember(prompt.getQuestion());
+        remember(ChatMessage.assistant(text));
+        entry.setAnswer(text);
+
+        // Render the response with the configured renderer; streamed tokens were already
+        // printed while they arrived
+        if (!appProps.isStreaming()) {
+            printAnswer("[Answer]", text);
+        }
 
-            // Add to JSON history
-            historyManager.addEntry(new HistoryEntry(query, text));
+        // Persist to JSON history and save the HTML file in the background
+        recordAnswer(entry, text);
+    }
 
-            // Save question and response to file
-            saveQuestionToFile(query, text);
-        } else {
-            executor.submit(() -> {
-                List<Map<String, String>> msgs = buildMessages(query);
-                JsonNode resp = client.sendMessages(msgs, dashProps.getModel());
-                String text = client.extractText(resp);
-                synchronized (convo) {
-                    convo.addLast(Map.of("role", "assistant", "content", text));
-                    if (appProps.getContextLength() > 0) {
-                        while (convo.size() > appProps.getContextLength() * 2) convo.removeFirst();
-                    }
-                }
-                entry.setAnswer(text);
-                synchronized (System.out) {
-                    // Render response using bat if available and configured, otherwise use plain text
-                    if (appProps.isUseBatRendering() && BatRenderer.isBatAvailable()) {
-                        System.out.println("\n[Answer]");
-                        if (!BatRenderer.renderToTerminal(text, appProps.getBatTheme())) {
-                            // Fallback to plain text if bat rendering fails
-                            System.out.println(text);
+    /**
+     * Asks a question in parallel mode. The request runs on the SDK's I/O threads; no pool
+     * thread waits for the answer. A live page needs the tokens as they arrive, so the
+     * answer is streamed for it.
+     */
+    private CompletableFuture<Void> askAsync(String query, ContextWindow.Prompt prompt) {
+        printPromptSize(prompt);
+        final Entry entry = new Entry(query);
+        synchronized (entries) {
+            entries.add(entry);
+        }
+        LiveAnswer live = startLiveAnswer(query);
+
+        List<Map<String, String>> msgs = prompt.getMessages();
+        CompletableFuture<ChatResult> request = live == null
+                ? client.sendMessagesAsync(msgs, dashProps.getModel())
+                : client.streamMessagesAsync(msgs, dashProps.getModel(), live)
+                        .whenComplete((result, error) -> live.finish());
+        return request
+                .thenAccept(result -> {
+                    // Not kept even if part of the answer arrived before the failure
+                    if (result.hasError()) {
+                        synchronized (entries) {
+                            entries.remove(entry);
                         }
-                    } else {
-                        System.out.println("\n[Answer] " + text);
+                        synchronized (System.out) {
+                            printFailure(result);
+                        }
+                        return;
+                    }
+                    String text = result.getDisplayText();
+                    // Question and answer join the context together, so requests still
+                    // in flight do not see questions without answers
+                    remember(prompt.getQuestion());
+                    remember(ChatMessage.assistant(text));
+                    entry.setAnswer(text);
+                    synchronized (System.out) {
+                        printAnswer("\n[Answer]", text);
                     }
+                    // Persist to JSON history and save the HTML file in the background
+                    recordAnswer(entry, text);
+                })
+                .exceptionally(ex -> {
+                    System.err.println(AnsiColors.promptError("Request failed: ") + ex.getMessage());
+                    return null;
+                });
+    }
 
-                    // Add to JSON history
-                    historyManager.addEntry(new HistoryEntry(query, text));
+    /**
+     * Identifies a question in flight: the normalized question, the model and the context
+     * it is asked in
+     */
+    private String flightKey(String query, ContextWindow.Prompt prompt) {
+        return QuestionNormalizer.normalize(query) + '\u0000' + dashProps.getModel() + '\u0000'
+                + Long.toHexString(prompt.getContextFingerprint());
+    }
 
-                    // Save question and response to file
-                    saveQuestionToFile(query, text);
-                }
-            });
+    private void trackInFlight(CompletableFuture<?> future) {
+        if (future == null) {
+            return;
         }
+        inFlight.add(future);
+        future.whenComplete((result, error) -> inFlight.remove(future));
     }
 
     /**
-     * Finds an existing question in the history and returns its entry
+     * Waits for asynchronous requests that are still in flight
      */
-    private HistoryEntry findExistingQuestion(String query) {
-        List<HistoryEntry> historyEntries = historyManager.loadHistory();
+    private void awaitInFlight(long timeout, TimeUnit unit) {
+        CompletableFuture<?>[] pending = inFlight.toArray(new CompletableFuture<?>[0]);
+        if (pending.length == 0) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(pending).get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+        }
+    }
 
-        // Look for an exact match of the question
-        for (HistoryEntry entry : historyEntries) {
-            if (entry.getQuestion().equals(query) && entry.getAnswer() != null) {
-                return entry;
-            }
+    /**
+     * Starts the live page for a request and prints its URL, if the answer server is running
+     * @return the live answer to feed, or null
+     */
+    private LiveAnswer startLiveAnswer(String question) {
+        if (!answerServer.isRunning()) {
+            return null;
+        }
+        LiveAnswer live = answerServer.startLive(question);
+        System.out.println(AnsiColors.promptInfo("Live view: " + answerServer.liveUrlFor(live)));
+        return live;
+    }
+
+    /**
+     * Streams the answer for the given messages to the terminal token by token and
+     * reports time-to-first-token and throughput once the answer is complete.
+     * Tokens are also passed to the live page, if there is one.
+     * Returns the result, whose text is the full answer for history and file export.
+     */
+    private ChatResult streamAnswer(List<Map<String, String>> msgs, LiveAnswer live) {
+        System.out.println("[Answer]");
+        ChatResult answer;
+        if (answerRenderer().equals(AnswerRenderer.PLAIN)) {
+            Consumer<String> terminal = token -> {
+                System.out.print(token);
+                System.out.flush();
+            };
+            answer = client.streamMessages(msgs, dashProps.getModel(), live == null ? terminal : terminal.andThen(live));
+            System.out.println();
+        } else {
+            // bat cannot render a document that is still growing, so streamed answers are
+            // always formatted in-process, block by block as they complete
+            StreamingMarkdownRenderer renderer = new StreamingMarkdownRenderer(System.out);
+            answer = client.streamMessages(msgs, dashProps.getModel(), live == null ? renderer : renderer.andThen(live));
+            renderer.finish();
+        }
+
+        if (answer.hasError()) {
+            printFailure(answer);
         }
 
-        return null; // Not found
+        if (answer.getTimeToFirstTokenMillis() >= 0) {
+            System.out.println(AnsiColors.promptInfo(String.format("(prompt %d tokens, first token %.2f s, %d tokens in %.2f s, %.1f tokens/s)",
+                    answer.getInputTokens(),
+                    answer.getTimeToFirstTokenMillis() / 1000.0,
+                    answer.getOutputTokens(),
+                    answer.getElapsedMillis() / 1000.0,
+                    answer.getTokensPerSecond())));
+        }
+        return answer;
+    }
+
+    private static void printFailure(ChatResult result) {
+        String hint = result.isThrottled() ? " (rate limited by the provider; try again shortly)" : "";
+        System.out.println(AnsiColors.promptError("Request failed: ") + result.getError() + hint);
+    }
+
+    /**
+     * Finds an existing question in the history: a normalized match first, then a
+     * near-duplicate above the configured similarity threshold
+     */
+    private QuestionMatch findExistingQuestion(String query) {
+        // Hash lookup in the history index instead of a scan over all entries
+        return historyManager.findMatch(query, appProps.getSimilarityThreshold());
     }
 
     /**
      * Uses an existing answer from history
      */
-    private void useExistingAnswer(String question, String answer) {
+    private void useExistingAnswer(String question, QuestionMatch match) {
+        String answer = match.getEntry().getAnswer();
+
         // Add to conversation context if needed
-        synchronized (convo) {
-            convo.addLast(Map.of("role", "user", "content", question));
-            convo.addLast(Map.of("role", "assistant", "content", answer));
-            if (appProps.getContextLength() > 0) {
-                while (convo.size() > appProps.getContextLength() * 2) convo.removeFirst();
-            }
-        }
+        remember(ChatMessage.user(question));
+        remember(ChatMessage.assistant(answer));
 
         // Create and add entry to in-memory list
         Entry entry = new Entry(question);
         entry.setAnswer(answer);
+        entry.stored = match.getEntry();
         synchronized (entries) {
             entries.add(entry);
         }
@@ -382,49 +566,67 @@ public class InteractiveService {
         // Print the existing answer
         if (parallelMode) {
             synchronized (System.out) {
-                // Render response using bat if available and configured, otherwise use plain text
-                if (appProps.isUseBatRendering() && BatRenderer.isBatAvailable()) {
-                    System.out.println("[Answer]");
-                    if (!BatRenderer.renderToTerminal(answer, appProps.getBatTheme())) {
-                        // Fallback to plain text if bat rendering fails
-                        System.out.println(answer);
-                    }
-                } else {
-                    System.out.println("[Answer] " + answer);
-                }
-                System.out.println("(Answer retrieved from history)");
+                printAnswer("[Answer]", answer);
+                printHistoryHitNotice(match);
             }
         } else {
-            // Render response using bat if available and configured, otherwise use plain text
-            if (appProps.isUseBatRendering() && BatRenderer.isBatAvailable()) {
-                System.out.println("[Answer]");
-                if (!BatRenderer.renderToTerminal(answer, appProps.getBatTheme())) {
-                    // Fallback to plain text if bat rendering fails
-                    System.out.println(answer);
-                }
-            } else {
-                System.out.println("[Answer] " + answer);
-            }
-            System.out.println("(Answer retrieved from history)");
+            printAnswer("[Answer]", answer);
+            printHistoryHitNotice(match);
         }
 
         // Note: We don't need to save to file again since it's already in history
     }
 
-    private List<Map<String, String>> buildMessages(String currentUser) {
-        List<Map<String, String>> msgs = new ArrayList<>();
-        if (appProps.getSystemMessage() != null && !appProps.getSystemMessage().isBlank()) {
-            msgs.add(Map.of("role", "system", "content", appProps.getSystemMessage()));
+    /**
+     * Prints an answer below its header with the configured renderer; plain answers
+     * follow the header on the same line
+     */
+    private void printAnswer(String header, String text) {
+        String renderer = answerRenderer();
+        if (renderer.equals(AnswerRenderer.PLAIN)) {
+            System.out.println(header + " " + text);
+        } else {
+            System.out.println(header);
+            AnswerRenderer.print(text, renderer, appProps.getBatTheme());
+        }
+    }
+
+    private String answerRenderer() {
+        return appProps.isUseBatRendering() ? AnswerRenderer.resolve(appProps.getRenderer()) : AnswerRenderer.PLAIN;
+    }
+
+    private void printHistoryHitNotice(QuestionMatch match) {
+        if (match.isExact()) {
+            System.out.println("(Answer retrieved from history)");
+            return;
         }
-        if (appProps.getContextLength() > 0) {
-            synchronized (convo) {
-                for (Map<String, String> m : convo) {
-                    msgs.add(Map.of("role", m.get("role"), "content", m.get("content")));
-                }
-            }
+        System.out.println(AnsiColors.promptInfo(String.format(
+                "(Answer retrieved from history for a similar question, %.0f%% match: ", match.getSimilarity() * 100))
+                + match.getEntry().getQuestion() + AnsiColors.promptInfo(")"));
+        System.out.println(AnsiColors.promptText("Prefix the question with ")
+                + AnsiColors.promptNavigation("'" + FORCE_FRESH_PREFIX + "'")
+                + AnsiColors.promptText(" to ask for a fresh answer."));
+    }
+
+    /**
+     * Fits the system message, the latest conversation rounds and the question into the
+     * configured token budget
+     */
+    private ContextWindow.Prompt buildPrompt(String currentUser) {
+        return context.fit(appProps.getSystemMessage(), currentUser,
+                appProps.getContextLength() * 2, appProps.getContextTokens());
+    }
+
+    private void remember(ChatMessage message) {
+        context.add(message, appProps.getContextLength() * 2);
+        if (summarizer != null && message.getRole().equals(ChatMessage.ASSISTANT)) {
+            summarizer.schedule();
         }
-        msgs.add(Map.of("role", "user", "content", currentUser));
-        return msgs;
+    }
+
+    private void printPromptSize(ContextWindow.Prompt prompt) {
+        System.out.println(AnsiColors.promptInfo(String.format("(prompt ~%d tokens, %d of %d earlier messages)",
+                prompt.getEstimatedTokens(), prompt.getContextMessages(), prompt.getAvailableMessages())));
     }
 
     private void ensureHistoryFile(String path) {
@@ -462,7 +664,7 @@ public class InteractiveService {
         for (int i = 0; i < historyEntries.size(); i++) {
             HistoryEntry entry = historyEntries.get(i);
             terminal.writer().println("[" + (i + 1) + "] Question: \u001B[32m" + entry.getQuestion() + "\u001B[0m");
-            if (entry.getAnswer() != null) {
+            if (entry.hasAnswer()) {
                 terminal.writer().println("    Answer: " + entry.getAnswer());
             } else {
                 terminal.writer().println("    Answer: (Pending...)");
@@ -521,6 +723,9 @@ public class InteractiveService {
     }
 
     private void openLastResponseInBrowser() {
+        String question;
+        String lastAnswer;
+        HistoryEntry stored;
         synchronized (entries) {
             if (entries.isEmpty()) {
                 System.out.println(AnsiColors.promptInfo("No Q&A records yet."));
@@ -529,85 +734,65 @@ public class InteractiveService {
 
             // Get the last entry
             Entry lastEntry = entries.get(entries.size() - 1);
-            
-            if (lastEntry.answer == null || lastEntry.answer.isEmpty()) {
-                System.out.println(AnsiColors.promptInfo("The answer to the last question has not been generated yet."));
-                return;
-            }
-
-            try {
-                // Get current date in yyyy-MM-dd format
-                String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-
-                String sanitized = FilenameUtils.sanitizeFilename(lastEntry.question);
-
-                // Create the filename with .html extension for styled content
-                String fileName = date + "_" + sanitized + ".html";
-
-                // Create the content with Monokai-themed markdown
-                String content = MarkdownRenderer.createMonokaiStyledMarkdown(lastEntry.question, lastEntry.answer);
-
-                // Write to file in questions directory
-                Path questionsDir = Paths.get("questions");
-                if (!Files.exists(questionsDir)) {
-                    Files.createDirectories(questionsDir);
-                }
-
-                Path filePath = questionsDir.resolve(fileName);
-                Files.write(filePath, content.getBytes());
-
-                // Open in browser
-                // Try different browsers/commands based on OS
-                String os = System.getProperty("os.name").toLowerCase();
-                Process process;
-                
-                if (os.contains("mac")) {
-                    process = Runtime.getRuntime().exec(new String[]{"open", filePath.toString()});
-                } else if (os.contains("win")) {
-                    process = Runtime.getRuntime().exec(new String[]{"cmd", "/c", "start", "\"\"", filePath.toString()});
-                } else {
-                    // Linux and other Unix-like systems
-                    process = Runtime.getRuntime().exec(new String[]{"xdg-open", filePath.toString()});
-                }
-                
-                process.waitFor();
-                System.out.println(AnsiColors.promptInfo("Answer opened in browser: ") + filePath.toAbsolutePath());
-            } catch (Exception e) {
-                System.err.println(AnsiColors.promptError("Failed to open browser: ") + e.getMessage());
-            }
+            question = lastEntry.question;
+            lastAnswer = lastEntry.answer();
+            stored = lastEntry.stored;
         }
-    }
-
-    private void saveQuestionToFile(String question, String response) {
-        try {
-            // Get current date in yyyy-MM-dd format
-            String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
 
-            // Extract first 35 characters of the question and sanitize for filename
-            String sanitized = FilenameUtils.sanitizeFilename(question);
-
-            // Create the filename with .html extension for styled content
-            String fileName = date + "_" + sanitized + ".html";
+        if (lastAnswer == null || lastAnswer.isEmpty()) {
+            System.out.println(AnsiColors.promptInfo("The answer to the last question has not been generated yet."));
+            return;
+        }
 
-            // Create the content with Monokai-themed markdown
-            String content = MarkdownRenderer.createMonokaiStyledMarkdown(question, response);
+        // With the answer server the page is rendered on request and cached; no file is written
+        if (answerServer.isRunning() && stored != null) {
+            String url = answerServer.urlFor(stored);
+            System.out.println(AnsiColors.promptInfo("Opening answer in browser: ") + url);
+            sideEffects.submit(() -> BrowserLauncher.open(url));
+            return;
+        }
 
-            // Write to file in questions directory
-            Path questionsDir = Paths.get("questions");
-            if (!Files.exists(questionsDir)) {
-                Files.createDirectories(questionsDir);
+        // Writing the file and waiting for the browser launcher happen in the background,
+        // without holding the entries lock
+        Path filePath = questionExporter.pagePath(question);
+        System.out.println(AnsiColors.promptInfo("Opening answer in browser: ") + filePath.toAbsolutePath());
+        sideEffects.submit(() -> {
+            if (writeQuestionFile(question, lastAnswer)) {
+                BrowserLauncher.open(filePath.toString());
             }
+        });
+    }
 
-            Path filePath = questionsDir.resolve(fileName);
-            Files.write(filePath, content.getBytes());
-
+    /**
+     * Queues the answer for the JSON history and its HTML file, and prints where the file
+     * will be
+     */
+    private void recordAnswer(Entry entry, String response) {
+        String question = entry.question;
+        HistoryEntry historyEntry = new HistoryEntry(question, response);
+        entry.stored = historyEntry;
+        sideEffects.addHistory(historyEntry);
+        Path filePath = questionExporter.pagePath(question);
+        sideEffects.submit(() -> writeQuestionFile(question, response));
+        synchronized (System.out) {
             System.out.println();
             System.out.println(filePath.toAbsolutePath());
             System.out.println();
+        }
+    }
+
+    /**
+     * Writes the Monokai-themed page for an answer into its dated subdirectory of
+     * questions/ and lists it in the index page
+     */
+    private boolean writeQuestionFile(String question, String response) {
+        try {
+            questionExporter.export(question, response);
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving question to file: " + e.getMessage());
+            return false;
         }
     }
 
-
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.askquery.service;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent calls, for picking when a slow call is worth hedging.
+ *
+ * The last {@value #CAPACITY} samples are kept in a ring buffer; percentiles are only
+ * reported once {@value #MIN_SAMPLES} calls have been seen, since a few calls say little
+ * about the tail.
+ */
+public class LatencyTracker {
+
+    static final int CAPACITY = 100;
+    static final int MIN_SAMPLES = 20;
+
+    // Guarded by this
+    private final long[] samples = new long[CAPACITY];
+    private int count;
+    private int next;
+
+    public synchronized void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        samples[next] = millis;
+        next = (next + 1) % CAPACITY;
+        count = Math.min(count + 1, CAPACITY);
+    }
+
+    /**
+     * The latency the given fraction of recent calls stayed within
+     * @param quantile between 0 and 1, e.g. 0.95
+     * @return the latency in milliseconds, or -1 while there are too few samples
+     */
+    public long percentile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(Math.min(1, Math.max(0, quantile)) * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.IncrementalHtmlRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * An answer still being generated, as shown on its live page by {@link AnswerServer}.
+ *
+ * Tokens are converted to HTML block by block with {@link IncrementalHtmlRenderer}. Every
+ * viewer gets its own event queue: completed blocks ({@code block} events), a preview of
+ * the open block ({@code tail} events, recomputed when a line completes or at most every
+ * {@value #TAIL_INTERVAL_MILLIS} ms) and a final {@code done} event. A viewer that joins
+ * late is first sent everything so far, so each page can be reloaded at any time.
+ */
+public class LiveAnswer implements Consumer<String> {
+
+    static final long TAIL_INTERVAL_MILLIS = 200;
+
+    /**
+     * A server-sent event
+     */
+    static final class Event {
+        final String name;
+        final String data;
+
+        Event(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        boolean isDone() {
+            return name.equals("done");
+        }
+    }
+
+    private final String id;
+    private final String question;
+    private final IncrementalHtmlRenderer renderer = new IncrementalHtmlRenderer();
+
+    // Guarded by this
+    private final List<String> blocks = new ArrayList<>();
+    private final List<BlockingQueue<Event>> viewers = new ArrayList<>();
+    private String tail = "";
+    private long tailUpdatedAt;
+    private boolean done;
+
+    LiveAnswer(String id, String question) {
+        this.id = id;
+        this.question = question;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Feeds the next piece of the answer
+     */
+    @Override
+    public synchronized void accept(String token) {
+        if (done || token == null || token.isEmpty()) {
+            return;
+        }
+        List<String> completed = renderer.accept(token);
+        for (String html : completed) {
+            blocks.add(html);
+            publish(new Event("block", html));
+        }
+        long now = System.currentTimeMillis();
+        if (!completed.isEmpty() || token.indexOf('\n') >= 0 || now - tailUpdatedAt >= TAIL_INTERVAL_MILLIS) {
+            updateTail(renderer.tail(), now);
+        }
+    }
+
+    /**
+     * Marks the answer complete; later tokens are ignored
+     */
+    public synchronized void finish() {
+        if (done) {
+            return;
+        }
+        for (String html : renderer.finish()) {
+            blocks.add(html);
+            publish(new Event("block", html));
+        }
+        updateTail("", System.currentTimeMillis());
+        done = true;
+        publish(new Event("done", ""));
+    }
+
+    private void updateTail(String html, long now) {
+        tailUpdatedAt = now;
+        if (!html.equals(tail)) {
+            tail = html;
+            publish(new Event("tail", html));
+        }
+    }
+
+    private void publish(Event event) {
+        for (BlockingQueue<Event> viewer : viewers) {
+            viewer.add(event);
+        }
+    }
+
+    /**
+     * Registers a viewer; its queue starts with everything published so far
+     */
+    synchronized BlockingQueue<Event> subscribe() {
+        BlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+        for (String html : blocks) {
+            queue.add(new Event("block", html));
+        }
+        if (!tail.isEmpty()) {
+            queue.add(new Event("tail", tail));
+        }
+        if (done) {
+            queue.add(new Event("done", ""));
+        } else {
+            viewers.add(queue);
+        }
+        return queue;
+    }
+
+    synchronized void unsubscribe(BlockingQueue<Event> queue) {
+        viewers.remove(queue);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.FilenameUtils;
+import com.example.askquery.util.MarkdownRenderer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes answer pages into the questions directory and keeps its index page current.
+ *
+ * Pages are sharded into one subdirectory per month ({@code questions/2024-05/}), so no
+ * directory grows without bound. {@code questions/index.html} lists every page; each new
+ * page appends a single list item to it, relying on HTML's optional closing tags, and the
+ * stylesheet shows the list newest first. Pages already listed are recognized from the
+ * index links, read once, so re-exporting an answer does not list it twice.
+ */
+public class QuestionExporter {
+
+    static final String INDEX_FILE = "index.html";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Pattern INDEX_LINK = Pattern.compile("<li><a href=\"([^\"]*)\"");
+
+    private final Path directory;
+    // Links already in the index, loaded on first use
+    private Set<String> indexed;
+
+    public QuestionExporter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The page for a question asked today, named after the date and the question
+     */
+    public Path pagePath(String question) {
+        LocalDate today = LocalDate.now();
+        String fileName = today.format(DAY_FORMAT) + "_" + FilenameUtils.sanitizeFilename(question) + ".html";
+        return directory.resolve(today.format(MONTH_FORMAT)).resolve(fileName);
+    }
+
+    /**
+     * Writes the page for an answer and lists it in the index
+     * @return the page written
+     */
+    public Path export(String question, String answer) throws IOException {
+        Path page = pagePath(question);
+        MarkdownRenderer.exportMonokaiPage(page, question, answer, getStylesheet());
+        addToIndex(page, question);
+        return page;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path getStylesheet() {
+        return directory.resolve(MarkdownRenderer.STYLESHEET_FILE);
+    }
+
+    public Path getIndex() {
+        return directory.resolve(INDEX_FILE);
+    }
+
+    private synchronized void addToIndex(Path page, String question) throws IOException {
+        Path index = getIndex();
+        String href = directory.toAbsolutePath().relativize(page.toAbsolutePath()).toString().replace('\\', '/');
+        if (indexed == null || !Files.exists(index)) {
+            indexed = readIndexedLinks(index);
+        }
+        if (indexed.contains(href)) {
+            return;
+        }
+        StringBuilder item = new StringBuilder();
+        if (!Files.exists(index)) {
+            item.append("<!DOCTYPE html>\n")
+                    .append("<html>\n")
+                    .append("<head>\n")
+                    .append("    <meta charset=\"utf-8\">\n")
+                    .append("    <title>Questions</title>\n")
+                    .append("    <link rel=\"stylesheet\" href=\"").append(MarkdownRenderer.STYLESHEET_FILE).append("\">\n")
+                    .append("</head>\n")
+                    .append("<body>\n")
+                    .append("<div class=\"container\">\n")
+                    .append("<h1>Questions</h1>\n")
+                    .append("<ul class=\"index\">\n");
+        }
+        item.append("<li><a href=\"").append(MarkdownRenderer.escapeHtml(href)).append("\">")
+                .append(MarkdownRenderer.escapeHtml(question)).append("</a> <span class=\"timestamp\">")
+                .append(LocalDateTime.now().format(TIME_FORMAT)).append("</span></li>\n");
+        Files.write(index, item.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        indexed.add(href);
+    }
+
+    private static Set<String> readIndexedLinks(Path index) throws IOException {
+        Set<String> links = new HashSet<>();
+        if (!Files.exists(index)) {
+            return links;
+        }
+        Matcher matcher = INDEX_LINK.matcher(Files.readString(index, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            links.add(matcher.group(1).replace("&amp;", "&"));
+        }
+        return links;
+    }
+}
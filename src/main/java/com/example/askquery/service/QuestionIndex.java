@@ -0,0 +1,139 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.util.QuestionNormalizer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Question lookup over the history: a hash map from normalized question (see
+ * {@link QuestionNormalizer}) to the latest answered entry, fronted by a Bloom filter so
+ * that questions never asked before are rejected without touching the map.
+ *
+ * Readers never lock; the owner serializes writers. Removals leave their Bloom bits set,
+ * which only costs an occasional extra map probe until the index is rebuilt.
+ */
+public class QuestionIndex {
+
+    private static final int HASH_FUNCTIONS = 7;
+    // About 1% false positives at the expected capacity
+    private static final double BITS_PER_ENTRY = 9.6;
+    // Caps the filter at 8 MB however large the configured history is
+    private static final int MAX_WORDS = 1 << 20;
+
+    private final Map<String, HistoryEntry> byQuestion = new ConcurrentHashMap<>();
+    private final AtomicLongArray bloomBits;
+    private final int bloomSize;
+
+    public QuestionIndex(int expectedEntries) {
+        long bits = (long) Math.ceil(Math.max(64, expectedEntries) * BITS_PER_ENTRY);
+        int words = (int) Math.min(MAX_WORDS, (bits + 63) / 64);
+        this.bloomBits = new AtomicLongArray(words);
+        this.bloomSize = words * 64;
+    }
+
+    /**
+     * Builds an index over the given entries; later entries win for repeated questions
+     */
+    public static QuestionIndex build(List<HistoryEntry> entries, int expectedEntries) {
+        QuestionIndex index = new QuestionIndex(Math.max(expectedEntries, entries.size()));
+        for (HistoryEntry entry : entries) {
+            index.put(entry);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes an entry if it has an answer, replacing any earlier entry for the same question
+     */
+    public void put(HistoryEntry entry) {
+        if (entry == null || entry.getQuestion() == null || !entry.hasAnswer()) {
+            return;
+        }
+        String key = QuestionNormalizer.normalize(entry.getQuestion());
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bloomSize);
+            setBit(bit);
+        }
+        byQuestion.put(key, entry);
+    }
+
+    /**
+     * Removes the entry if it is the one currently indexed for its question
+     */
+    public void remove(HistoryEntry entry) {
+        if (entry != null && entry.getQuestion() != null) {
+            byQuestion.remove(QuestionNormalizer.normalize(entry.getQuestion()), entry);
+        }
+    }
+
+    /**
+     * Returns the latest answered entry whose question normalizes to the same text, or null
+     */
+    public HistoryEntry find(String question) {
+        if (question == null) {
+            return null;
+        }
+        String key = QuestionNormalizer.normalize(question);
+        if (!mightContainNormalized(key)) {
+            return null;
+        }
+        return byQuestion.get(key);
+    }
+
+    public boolean mightContain(String question) {
+        return question != null && mightContainNormalized(QuestionNormalizer.normalize(question));
+    }
+
+    private boolean mightContainNormalized(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bloomSize);
+            if ((bloomBits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return byQuestion.size();
+    }
+
+    private void setBit(int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = bloomBits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bloomBits.compareAndSet(word, current, current | mask));
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, split into two 32-bit hashes for
+     * double hashing
+     */
+    private static long hash64(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // Final avalanche so that similar questions spread over the whole bit array
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.askquery.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side token buckets for requests per minute and tokens per minute.
+ *
+ * A call reserves its request and its estimated tokens up front and is told how long to
+ * wait before sending; buckets may go into debt, so calls queue up behind a large one
+ * instead of overtaking it. Once the usage the API reports is known, the estimate is
+ * settled against it. Each bucket holds at most {@value #BURST_SECONDS} seconds' worth of
+ * its rate, so an idle client cannot save up a burst the provider would reject. A limit
+ * of 0 or less disables that bucket.
+ */
+public class RateLimiter {
+
+    static final int BURST_SECONDS = 10;
+
+    private static final class Bucket {
+        final double perNano;
+        final double capacity;
+        double available;
+        long updatedAt;
+
+        Bucket(int perMinute, long now) {
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.capacity = Math.max(1.0, perMinute * BURST_SECONDS / 60.0);
+            this.available = capacity;
+            this.updatedAt = now;
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - updatedAt) * perNano);
+            updatedAt = now;
+        }
+
+        long take(double amount, long now) {
+            refill(now);
+            available -= amount;
+            return available >= 0 ? 0 : (long) Math.ceil(-available / perNano);
+        }
+    }
+
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final LongSupplier clock;
+
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        this(requestsPerMinute, tokensPerMinute, System::nanoTime);
+    }
+
+    RateLimiter(int requestsPerMinute, int tokensPerMinute, LongSupplier clock) {
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.requests = requestsPerMinute > 0 ? new Bucket(requestsPerMinute, now) : null;
+        this.tokens = tokensPerMinute > 0 ? new Bucket(tokensPerMinute, now) : null;
+    }
+
+    public boolean isEnabled() {
+        return requests != null || tokens != null;
+    }
+
+    /**
+     * Reserves one request using about the given number of tokens
+     * @return nanoseconds to wait before sending it
+     */
+    public synchronized long reserve(int estimatedTokens) {
+        long now = clock.getAsLong();
+        long wait = 0;
+        if (requests != null) {
+            wait = requests.take(1, now);
+        }
+        if (tokens != null) {
+            wait = Math.max(wait, tokens.take(Math.max(0, estimatedTokens), now));
+        }
+        return wait;
+    }
+
+    /**
+     * Corrects a reservation once the actual token usage is known
+     * @param actualTokens tokens used, 0 for a call that was not billed (the estimate is
+     *                     refunded); negative when unknown, which keeps the estimate
+     */
+    public synchronized void settle(int estimatedTokens, int actualTokens) {
+        if (tokens != null && actualTokens >= 0) {
+            tokens.take(actualTokens - estimatedTokens, clock.getAsLong());
+        }
+    }
+
+    /**
+     * Reserves one request and waits until it may be sent
+     */
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        long wait = reserve(estimatedTokens);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -2,18 +2,15 @@ package com.example.askquery.service;
 
 import com.example.askquery.config.AppProperties;
 import com.example.askquery.model.HistoryEntry;
-import com.example.askquery.util.BatRenderer;
+import com.example.askquery.util.AnswerRenderer;
 import com.example.askquery.util.AnsiColors;
-import com.example.askquery.util.FilenameUtils;
-import com.example.askquery.util.MarkdownRenderer;
+import com.example.askquery.util.BrowserLauncher;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
-import java.util.stream.Collectors;
-import java.nio.file.Files;
+import java.util.regex.PatternSyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -22,51 +19,83 @@ import java.nio.file.Paths;
  */
 public class SearchHistoryService {
     
+    private static final int MAX_SEARCH_RESULTS = 10;
+    
     private final HistoryManager historyManager;
+    private final HistorySearchIndex searchIndex = new HistorySearchIndex();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
     private final AppProperties appProps;
+    private final QuestionExporter questionExporter;
+    private volatile AnswerServer answerServer;
     private final Scanner scanner;
     private HistoryEntry selectedEntry; // Track the currently selected entry
     private HistoryEntry lastSelectedSearchResult; // Track the last selected search result
     
     public SearchHistoryService(HistoryManager historyManager, AppProperties appProps) {
+        this(historyManager, appProps, new QuestionExporter(Paths.get("questions")));
+    }
+
+    public SearchHistoryService(HistoryManager historyManager, AppProperties appProps, QuestionExporter questionExporter) {
         this.historyManager = historyManager;
         this.appProps = appProps;
+        this.questionExporter = questionExporter;
         this.scanner = new Scanner(System.in);
     }
+
+    /**
+     * Opens answers through the given server while it is running, instead of writing files
+     */
+    public void setAnswerServer(AnswerServer answerServer) {
+        this.answerServer = answerServer;
+    }
     
     /**
-     * Search history entries by keywords and return top 10 matches
-     * @param keywords search keywords
-     * @return list of matched HistoryEntry objects
+     * Search history questions and answers and return the 10 best matches.
+     * Plain keywords must all occur and are ranked by BM25 with question hits weighted
+     * higher; if nothing matches, the input is retried as a substring. Input wrapped in
+     * double quotes is searched as an exact substring and {@code /pattern/} as a regular
+     * expression, both ignoring case and listing the most recent entries first
+     * @param keywords search keywords, "quoted text" or /regex/
+     * @return list of matched HistoryEntry objects, best match first
      */
     public List<HistoryEntry> searchHistory(String keywords) {
         if (keywords == null || keywords.trim().isEmpty()) {
             return new ArrayList<>();
         }
         
-        String[] searchTerms = keywords.toLowerCase().trim().split("\\s+");
+        String query = keywords.trim();
         List<HistoryEntry> allEntries = historyManager.loadHistory();
-        
-        return allEntries.stream()
-                .filter(entry -> entry.getQuestion() != null)
-                .filter(entry -> matchesKeywords(entry.getQuestion().toLowerCase(), searchTerms))
-                .limit(10)
-                .collect(Collectors.toList());
+        if (query.length() > 2 && query.startsWith("/") && query.endsWith("/")) {
+            return searchRegex(allEntries, query.substring(1, query.length() - 1));
+        }
+        if (query.length() > 2 && query.startsWith("\"") && query.endsWith("\"")) {
+            return searchSubstring(allEntries, query.substring(1, query.length() - 1));
+        }
+        List<HistoryEntry> ranked;
+        synchronized (searchIndex) {
+            searchIndex.sync(allEntries);
+            ranked = new ArrayList<>(searchIndex.search(query, MAX_SEARCH_RESULTS));
+        }
+        return ranked.isEmpty() ? searchSubstring(allEntries, query) : ranked;
     }
     
-    /**
-     * Check if text matches all search keywords
-     * @param text text to search in
-     * @param keywords array of keywords to match
-     * @return true if all keywords are found in the text
-     */
-    private boolean matchesKeywords(String text, String[] keywords) {
-        for (String keyword : keywords) {
-            if (!text.contains(keyword)) {
-                return false;
+    private List<HistoryEntry> searchSubstring(List<HistoryEntry> allEntries, String text) {
+        synchronized (trigramIndex) {
+            trigramIndex.sync(allEntries);
+            return trigramIndex.searchSubstring(text, MAX_SEARCH_RESULTS);
+        }
+    }
+    
+    private List<HistoryEntry> searchRegex(List<HistoryEntry> allEntries, String regex) {
+        try {
+            synchronized (trigramIndex) {
+                trigramIndex.sync(allEntries);
+                return trigramIndex.searchRegex(regex, MAX_SEARCH_RESULTS);
             }
+        } catch (PatternSyntaxException e) {
+            System.out.println(AnsiColors.promptError("Invalid regular expression: ") + e.getDescription());
+            return new ArrayList<>();
         }
-        return true;
     }
     
     /**
@@ -95,6 +124,7 @@ public class SearchHistoryService {
      */
     public void handleSearchInteraction() {
         System.out.println("\n" + AnsiColors.promptModeHeader("=== Search History Mode ==="));
+        System.out.println(AnsiColors.promptInfo("Use \"quoted text\" for an exact fragment or /regex/ for a pattern."));
         
         while (true) {
             System.out.print(AnsiColors.promptText("Enter search keywords ") + 
@@ -175,17 +205,12 @@ public class SearchHistoryService {
         System.out.println(AnsiColors.promptText("Question: ") + entry.getQuestion());
         System.out.println(AnsiColors.promptDivider("-----------------------------------"));
         
-        if (entry.getAnswer() != null && !entry.getAnswer().isEmpty()) {
+        // Inflated once here; listings and search results only show the question
+        String answer = entry.getAnswer();
+        if (answer != null && !answer.isEmpty()) {
             System.out.println(AnsiColors.promptText("Answer:"));
-            // Use bat rendering if available and configured
-            if (BatRenderer.isBatAvailable()) {
-                if (!BatRenderer.renderToTerminal(entry.getAnswer(), "Monokai Extended")) {
-                    // Fallback to plain text if bat rendering fails
-                    System.out.println(entry.getAnswer());
-                }
-            } else {
-                System.out.println(entry.getAnswer());
-            }
+            // Use the configured renderer; bat falls back to the in-process renderer
+            AnswerRenderer.print(answer, appProps.getRenderer(), "Monokai Extended");
         } else {
             System.out.println(AnsiColors.promptText("Answer: ") + AnsiColors.promptInfo("(No answer available)"));
         }
@@ -199,44 +224,21 @@ public class SearchHistoryService {
         if (input.equalsIgnoreCase("o")) {
             // Open the current entry in browser
             try {
-                // Use the same HTML generation logic
-                LocalDate date = LocalDate.now();
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                String dateString = date.format(formatter);
-                
-                String sanitized = FilenameUtils.sanitizeFilename(entry.getQuestion());
-                
-                // Create the filename with .html extension for styled content
-                String fileName = dateString + "_" + sanitized + ".html";
-                
-                // Create the content with Monokai-themed markdown
-                String content = MarkdownRenderer.createMonokaiStyledMarkdown(
-                    entry.getQuestion(), entry.getAnswer());
-                
-                // Write to file in questions directory
-                Path questionsDir = Paths.get("questions");
-                if (!Files.exists(questionsDir)) {
-                    Files.createDirectories(questionsDir);
+                AnswerServer server = answerServer;
+                if (server != null && server.isRunning()) {
+                    // Served from the answer server's cache, no file is written
+                    String url = server.urlFor(entry);
+                    if (BrowserLauncher.open(url)) {
+                        System.out.println(AnsiColors.promptInfo("Answer opened in browser: ") + url);
+                    }
+                    return;
                 }
-                
-                Path filePath = questionsDir.resolve(fileName);
-                Files.write(filePath, content.getBytes());
-                
-                // Open in browser
-                String os = System.getProperty("os.name").toLowerCase();
-                Process process;
-                
-                if (os.contains("mac")) {
-                    process = Runtime.getRuntime().exec(new String[]{"open", filePath.toString()});
-                } else if (os.contains("win")) {
-                    process = Runtime.getRuntime().exec(new String[]{"cmd", "/c", "start", "\"\"", filePath.toString()});
-                } else {
-                    // Linux and other Unix-like systems
-                    process = Runtime.getRuntime().exec(new String[]{"xdg-open", filePath.toString()});
+
+                // Write the page with the same exporter as new answers
+                Path filePath = questionExporter.export(entry.getQuestion(), answer);
+                if (BrowserLauncher.open(filePath.toString())) {
+                    System.out.println(AnsiColors.promptInfo("Answer opened in browser: ") + filePath.toAbsolutePath());
                 }
-                
-                process.waitFor();
-                System.out.println(AnsiColors.promptInfo("Answer opened in browser: ") + filePath.toAbsolutePath());
             } catch (Exception e) {
                 System.err.println(AnsiColors.promptError("Failed to open browser: ") + e.getMessage());
             }
@@ -255,8 +257,11 @@ public class SearchHistoryService {
         
         while (true) {
             List<HistoryEntry> allEntries = historyManager.loadHistory();
+            HistoryArchive archive = historyManager.getArchive();
+            long archivedCount = archive == null ? 0 : archive.size();
+            long totalEntries = allEntries.size() + archivedCount;
             
-            if (allEntries.isEmpty()) {
+            if (totalEntries == 0) {
                 System.out.println(AnsiColors.promptInfo("No history entries found."));
                 System.out.println(AnsiColors.promptText("Press Enter to refresh or ") + 
                                  AnsiColors.promptNavigation("'q'") + 
@@ -269,19 +274,17 @@ public class SearchHistoryService {
             }
             
             // Calculate pagination
-            int totalPages = (int) Math.ceil((double) allEntries.size() / pageSize);
-            int startIndex = currentPage * pageSize;
-            int endIndex = Math.min(startIndex + pageSize, allEntries.size());
+            int totalPages = (int) Math.ceil((double) totalEntries / pageSize);
+            currentPage = Math.min(currentPage, totalPages - 1);
+            long startIndex = (long) currentPage * pageSize;
+            long endIndex = Math.min(startIndex + pageSize, totalEntries);
             
-            // Get current page entries (most recent first within the page)
-            List<HistoryEntry> currentPageEntries = allEntries.subList(
-                Math.max(0, allEntries.size() - endIndex), 
-                Math.max(0, allEntries.size() - startIndex)
-            );
+            // Get current page entries; pages past the retained history are read from the archive
+            List<HistoryEntry> currentPageEntries = pageEntries(allEntries, archive, startIndex, endIndex);
             
             System.out.println("\n" + AnsiColors.promptSectionHeader("========== Latest History =========="));
             System.out.printf(AnsiColors.promptInfo("Page %d of %d ") + AnsiColors.promptText("(Total: %d entries)%n"), 
-                            currentPage + 1, totalPages, allEntries.size());
+                            currentPage + 1, totalPages, totalEntries);
             System.out.println(AnsiColors.promptDivider("===================================="));
             
             // Display entries with 1-based indexing within current page
@@ -350,4 +353,26 @@ public class SearchHistoryService {
             }
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Collects the entries at positions [startIndex, endIndex) counted from the newest one,
+     * oldest first. Positions beyond the retained history map to archived entries, of which
+     * only the requested ones are read.
+     */
+    private List<HistoryEntry> pageEntries(List<HistoryEntry> recent, HistoryArchive archive,
+                                           long startIndex, long endIndex) {
+        List<HistoryEntry> page = new ArrayList<>();
+        for (long position = endIndex - 1; position >= startIndex; position--) {
+            if (position < recent.size()) {
+                page.add(recent.get(recent.size() - 1 - (int) position));
+                continue;
+            }
+            try {
+                page.add(archive.get(archive.size() - 1 - (position - recent.size())));
+            } catch (IOException e) {
+                System.err.println(AnsiColors.promptError("Could not read archived entry: ") + e.getMessage());
+            }
+        }
+        return page;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the side effects of an answer (history persistence, HTML export, opening the
+ * browser) on background threads, so the prompt returns as soon as the answer is shown.
+ *
+ * History entries and file tasks go through separate bounded queues, each drained by its
+ * own daemon thread, so a slow browser launch never holds up history writes. Queued
+ * history entries are appended to the log in batches with one write. When a queue is
+ * full the caller waits, which bounds memory instead of dropping work; once the pipeline
+ * is closed, work is done on the caller's thread. Threads start on first use;
+ * {@link #flush(long, TimeUnit)} waits for everything queued so far, and
+ * {@link #close(long, TimeUnit)} flushes before the application exits.
+ */
+public class SideEffectPipeline {
+
+    static final int QUEUE_CAPACITY = 256;
+    static final int MAX_BATCH = 64;
+
+    private final HistoryManager historyManager;
+    private final BlockingQueue<HistoryEntry> historyQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Runnable> fileQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Items queued but not yet processed, guarded by this
+    private long pending;
+    private boolean closed;
+    private Thread historyWriter;
+    private Thread fileWorker;
+
+    public SideEffectPipeline(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    /**
+     * Queues an entry to be appended to the history log
+     */
+    public void addHistory(HistoryEntry entry) {
+        if (!enqueue(historyQueue, entry)) {
+            historyManager.addEntry(entry);
+        }
+    }
+
+    /**
+     * Queues a file or process task; tasks run one at a time in submission order
+     */
+    public void submit(Runnable task) {
+        if (!enqueue(fileQueue, task)) {
+            task.run();
+        }
+    }
+
+    /**
+     * @return false if the item was not queued and the caller should do the work itself,
+     *         which happens once the pipeline is closed (late answers during shutdown)
+     */
+    private <T> boolean enqueue(BlockingQueue<T> queue, T item) {
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            startWorkers();
+            pending++;
+        }
+        try {
+            queue.put(item);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done(1);
+            return false;
+        }
+    }
+
+    private void startWorkers() {
+        if (historyWriter != null) {
+            return;
+        }
+        historyWriter = new Thread(this::writeHistory, "history-writer");
+        historyWriter.setDaemon(true);
+        historyWriter.start();
+        fileWorker = new Thread(this::runFileTasks, "file-worker");
+        fileWorker.setDaemon(true);
+        fileWorker.start();
+    }
+
+    private void writeHistory() {
+        List<HistoryEntry> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(historyQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            historyQueue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                historyManager.addEntries(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Could not save history: " + e.getMessage());
+            } finally {
+                done(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void runFileTasks() {
+        while (true) {
+            Runnable task;
+            try {
+                task = fileQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Background task failed: " + e.getMessage());
+            } finally {
+                done(1);
+            }
+        }
+    }
+
+    private synchronized void done(int count) {
+        pending -= count;
+        if (pending == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until everything queued so far has been processed
+     * @return true if the pipeline drained within the timeout
+     */
+    public synchronized boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting work, waits for queued work and stops the threads
+     * @return true if everything queued was processed within the timeout
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+        synchronized (this) {
+            closed = true;
+        }
+        boolean drained = flush(timeout, unit);
+        synchronized (this) {
+            if (historyWriter != null) {
+                historyWriter.interrupt();
+                fileWorker.interrupt();
+            }
+        }
+        return drained;
+    }
+}
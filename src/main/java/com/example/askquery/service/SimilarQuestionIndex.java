@@ -0,0 +1,141 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.model.QuestionMatch;
+import com.example.askquery.util.QuestionNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Near-duplicate question lookup using MinHash signatures over character shingles.
+ * Signatures are split into bands for locality-sensitive hashing, so a lookup only
+ * compares against entries that share at least one band; candidates are then verified
+ * with the exact Jaccard similarity of their shingle sets. Numbers and other words with
+ * digits must match exactly, since "Java 11" and "Java 17" are different questions
+ * however similar their text.
+ */
+public class SimilarQuestionIndex {
+
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS_PER_BAND;
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix64(seed);
+        }
+    }
+
+    private final Map<Long, List<HistoryEntry>> buckets = new HashMap<>();
+
+    /**
+     * Builds an index over the given answered entries
+     */
+    public static SimilarQuestionIndex build(List<HistoryEntry> entries) {
+        SimilarQuestionIndex index = new SimilarQuestionIndex();
+        for (HistoryEntry entry : entries) {
+            index.put(entry);
+        }
+        return index;
+    }
+
+    public synchronized void put(HistoryEntry entry) {
+        if (entry == null || entry.getQuestion() == null || !entry.hasAnswer()) {
+            return;
+        }
+        for (long key : bandKeys(QuestionNormalizer.normalize(entry.getQuestion()))) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    public synchronized void remove(HistoryEntry entry) {
+        if (entry == null || entry.getQuestion() == null) {
+            return;
+        }
+        for (long key : bandKeys(QuestionNormalizer.normalize(entry.getQuestion()))) {
+            List<HistoryEntry> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.removeIf(e -> e == entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the most similar answered question whose similarity is at least
+     * {@code threshold}; ties go to the most recently added entry
+     * @return the best match, or null if none reaches the threshold
+     */
+    public synchronized QuestionMatch findSimilar(String question, double threshold) {
+        String normalized = QuestionNormalizer.normalize(question);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        Set<Long> shingles = QuestionNormalizer.shingles(normalized);
+        Set<String> numbers = QuestionNormalizer.numericTokens(normalized);
+        Map<HistoryEntry, Boolean> seen = new IdentityHashMap<>();
+        HistoryEntry best = null;
+        double bestSimilarity = -1;
+        for (long key : bandKeys(normalized)) {
+            List<HistoryEntry> bucket = buckets.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                HistoryEntry candidate = bucket.get(i);
+                if (seen.put(candidate, Boolean.TRUE) != null) {
+                    continue;
+                }
+                String candidateQuestion = QuestionNormalizer.normalize(candidate.getQuestion());
+                if (!numbers.equals(QuestionNormalizer.numericTokens(candidateQuestion))) {
+                    continue;
+                }
+                double similarity = QuestionNormalizer.jaccard(shingles, QuestionNormalizer.shingles(candidateQuestion));
+                if (similarity >= threshold && similarity > bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best == null ? null : new QuestionMatch(best, bestSimilarity, false);
+    }
+
+    private static long[] bandKeys(String normalized) {
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : QuestionNormalizer.shingles(normalized)) {
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                long h = mix64(shingle ^ SEEDS[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix64(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
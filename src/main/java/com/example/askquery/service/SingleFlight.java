@@ -0,0 +1,78 @@
+package com.example.askquery.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time; callers arriving while it runs share its result.
+ *
+ * A key stays registered only until its call completes, so this coalesces concurrent
+ * duplicates without caching anything: a later call with the same key starts afresh.
+ */
+public class SingleFlight<T> {
+
+    /**
+     * A call joined through {@link #join(String, Supplier)}
+     */
+    public static final class Flight<T> {
+        private final CompletableFuture<T> result;
+        private final boolean shared;
+
+        private Flight(CompletableFuture<T> result, boolean shared) {
+            this.result = result;
+            this.shared = shared;
+        }
+
+        public CompletableFuture<T> getResult() {
+            return result;
+        }
+
+        /**
+         * True when the caller joined a call another caller started
+         */
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    private final Map<String, CompletableFuture<T>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Joins the call in flight for the key, or starts one
+     * @param call starts the call; only invoked when none is in flight for the key
+     */
+    public Flight<T> join(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> running = flights.putIfAbsent(key, result);
+        if (running != null) {
+            return new Flight<>(running, true);
+        }
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            flights.remove(key, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((value, error) -> {
+            // Unregister first, so a caller woken by the result can start a new call
+            flights.remove(key, result);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return new Flight<>(result, false);
+    }
+
+    /**
+     * Number of calls in flight
+     */
+    public int size() {
+        return flights.size();
+    }
+}
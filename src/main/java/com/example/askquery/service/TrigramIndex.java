@@ -0,0 +1,395 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Substring and regular expression search over history questions and answers.
+ *
+ * Every lowercased three-character sequence of an entry's text is a key into postings of
+ * document ids, stored as delta-encoded varints. A query is reduced to the trigrams any
+ * match must contain; only entries holding all of them are verified against the actual
+ * text, so a search touches a handful of entries instead of the whole history. Queries
+ * that yield no trigrams (shorter than three characters, or regular expressions without a
+ * mandatory literal) fall back to verifying every entry.
+ *
+ * Kept in step with the history snapshot like {@link HistorySearchIndex}. Not
+ * thread-safe; the owner serializes access.
+ */
+public class TrigramIndex {
+
+    private static final int MIN_COMPACT_DELETIONS = 1024;
+    private static final String HEX_DIGITS = "0123456789abcdefABCDEF";
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<HistoryEntry, Integer> docIds = new IdentityHashMap<>();
+    private final List<HistoryEntry> docs = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private int[] seenStamps = new int[64];
+    private int stamp;
+    private int liveCount;
+    private List<HistoryEntry> lastSynced;
+
+    /**
+     * Brings the index in line with the given entries, which are expected to be the
+     * current history snapshot
+     */
+    public void sync(List<HistoryEntry> entries) {
+        if (entries == lastSynced) {
+            return;
+        }
+        stamp++;
+        for (HistoryEntry entry : entries) {
+            Integer docId = docIds.get(entry);
+            if (docId == null) {
+                docId = add(entry);
+            }
+            seenStamps[docId] = stamp;
+        }
+        for (int docId = live.nextSetBit(0); docId >= 0; docId = live.nextSetBit(docId + 1)) {
+            if (seenStamps[docId] != stamp) {
+                live.clear(docId);
+                docIds.remove(docs.get(docId));
+                docs.set(docId, null);
+                liveCount--;
+            }
+        }
+        int deleted = docs.size() - liveCount;
+        if (deleted > MIN_COMPACT_DELETIONS && deleted > liveCount) {
+            postings.clear();
+            docIds.clear();
+            docs.clear();
+            live.clear();
+            liveCount = 0;
+            for (HistoryEntry entry : entries) {
+                add(entry);
+            }
+        }
+        lastSynced = entries;
+    }
+
+    /**
+     * Returns up to {@code limit} entries whose question or answer contains the text,
+     * ignoring case, most recent first
+     */
+    public List<HistoryEntry> searchSubstring(String text, int limit) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String needle = text.toLowerCase(Locale.ROOT);
+        return collect(trigramsOf(needle), limit, entry -> contains(entry.getQuestion(), needle)
+                || (entry.hasAnswer() && contains(entry.getAnswer(), needle)));
+    }
+
+    /**
+     * Returns up to {@code limit} entries whose question or answer contains a match for the
+     * regular expression, ignoring case, most recent first
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public List<HistoryEntry> searchRegex(String regex, int limit) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        Set<Long> required = new HashSet<>();
+        for (String literal : requiredLiterals(regex)) {
+            required.addAll(trigramsOf(literal.toLowerCase(Locale.ROOT)));
+        }
+        return collect(required, limit, entry -> {
+            // The question is checked first, so a stored answer is only inflated if needed
+            if (entry.getQuestion() != null && pattern.matcher(entry.getQuestion()).find()) {
+                return true;
+            }
+            String answer = entry.hasAnswer() ? entry.getAnswer() : null;
+            return answer != null && pattern.matcher(answer).find();
+        });
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Literal runs that every match of the expression must contain. Deliberately
+     * conservative: alternation disables extraction altogether, groups and character
+     * classes end a run, and a character made optional by a quantifier is dropped
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        if (regex.indexOf('|') >= 0) {
+            return literals;
+        }
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(next)) {
+                    // \d, \w, \x41, \Q...\E, back-references and friends are not plain literals
+                    flush(run, literals);
+                    i = skipEscape(regex, i);
+                } else {
+                    run.append(next);
+                    i += 2;
+                }
+            } else if (c == '?' || c == '*' || c == '{') {
+                if (run.length() > 0) {
+                    run.setLength(run.length() - 1);
+                }
+                flush(run, literals);
+                i = c == '{' ? skipPast(regex, i, '}') : i + 1;
+                i = skipLazyOrPossessive(regex, i);
+            } else if (c == '+') {
+                flush(run, literals);
+                i = skipLazyOrPossessive(regex, i + 1);
+            } else if (c == '(') {
+                // A group may be optional or repeated zero times, so nothing inside is required
+                flush(run, literals);
+                i = skipGroup(regex, i);
+            } else if (c == '[') {
+                flush(run, literals);
+                i = skipPast(regex, i + 1, ']');
+            } else if (c == '.' || c == '^' || c == '$' || c == ')') {
+                flush(run, literals);
+                i++;
+            } else {
+                run.append(c);
+                i++;
+            }
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (run.length() > 0) {
+            literals.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    /**
+     * Index just past an escape starting with a backslash and a letter or digit, payload
+     * included: the hex or octal digits of a character escape, the name of a property or
+     * named group, everything up to the closing E of a quotation
+     */
+    private static int skipEscape(String regex, int backslash) {
+        int i = backslash + 2;
+        boolean braced = i < regex.length() && regex.charAt(i) == '{';
+        switch (regex.charAt(backslash + 1)) {
+            case 'x':
+                return braced ? skipPast(regex, i, '}') : skipWhile(regex, i, 2, HEX_DIGITS);
+            case 'u':
+                return skipWhile(regex, i, 4, HEX_DIGITS);
+            case '0':
+                return skipWhile(regex, i, 3, "01234567");
+            case 'c':
+                return Math.min(i + 1, regex.length());
+            case 'p':
+            case 'P':
+            case 'N':
+                return braced ? skipPast(regex, i, '}') : Math.min(i + 1, regex.length());
+            case 'k':
+                return i < regex.length() && regex.charAt(i) == '<' ? skipPast(regex, i, '>') : i;
+            case 'Q':
+                int end = regex.indexOf("\\E", i);
+                return end < 0 ? regex.length() : end + 2;
+            default:
+                // Back-references may have several digits
+                return Character.isDigit(regex.charAt(backslash + 1))
+                        ? skipWhile(regex, i, Integer.MAX_VALUE, "0123456789") : i;
+        }
+    }
+
+    private static int skipWhile(String regex, int from, int max, String chars) {
+        int i = from;
+        while (i < regex.length() && i - from < max && chars.indexOf(regex.charAt(i)) >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipPast(String regex, int from, char close) {
+        for (int i = from; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == close) {
+                return i + 1;
+            }
+        }
+        return regex.length();
+    }
+
+    private static int skipGroup(String regex, int open) {
+        int depth = 0;
+        for (int i = open; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipPast(regex, i + 1, ']') - 1;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return regex.length();
+    }
+
+    private static int skipLazyOrPossessive(String regex, int i) {
+        return i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+') ? i + 1 : i;
+    }
+
+    private interface Verifier {
+        boolean matches(HistoryEntry entry);
+    }
+
+    private List<HistoryEntry> collect(Set<Long> required, int limit, Verifier verifier) {
+        List<HistoryEntry> results = new ArrayList<>();
+        if (limit <= 0) {
+            return results;
+        }
+        int[] candidates = candidates(required);
+        for (int i = candidates.length - 1; i >= 0 && results.size() < limit; i--) {
+            HistoryEntry entry = docs.get(candidates[i]);
+            if (entry != null && verifier.matches(entry)) {
+                results.add(entry);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Live document ids holding every required trigram, in increasing order
+     */
+    private int[] candidates(Set<Long> required) {
+        if (required.isEmpty()) {
+            return live.stream().toArray();
+        }
+        List<Postings> lists = new ArrayList<>(required.size());
+        for (Long trigram : required) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.count, b.count));
+        int[] result = lists.get(0).decode();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i).decode());
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private int add(HistoryEntry entry) {
+        int docId = docs.size();
+        docs.add(entry);
+        docIds.put(entry, docId);
+        if (docId == seenStamps.length) {
+            seenStamps = Arrays.copyOf(seenStamps, docId * 2);
+        }
+        for (long trigram : trigramsOf(lowerText(entry))) {
+            postings.computeIfAbsent(trigram, k -> new Postings()).add(docId);
+        }
+        seenStamps[docId] = stamp;
+        live.set(docId);
+        liveCount++;
+        return docId;
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    /**
+     * Question and answer joined by a newline, so that no trigram spans both
+     */
+    private static String lowerText(HistoryEntry entry) {
+        String question = entry.getQuestion() == null ? "" : entry.getQuestion();
+        String answer = entry.getAnswer() == null ? "" : entry.getAnswer();
+        return (question + "\n" + answer).toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigramsOf(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Increasing document ids as varint-encoded gaps
+     */
+    private static final class Postings {
+        byte[] bytes = new byte[4];
+        int length;
+        int count;
+        int last = -1;
+
+        void add(int docId) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+            }
+            int gap = docId - last;
+            while ((gap & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[length++] = (byte) gap;
+            last = docId;
+            count++;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            int docId = -1;
+            int pos = 0;
+            for (int n = 0; n < count; n++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                docId += gap;
+                ids[n] = docId;
+            }
+            return ids;
+        }
+    }
+}
@@ -38,6 +38,11 @@ public class AnsiColors {
     public static final String CYAN_BACKGROUND = "\u001B[46m";
     public static final String WHITE_BACKGROUND = "\u001B[47m";
     
+    // Text Styles
+    public static final String BOLD = "\u001B[1m";
+    public static final String ITALIC = "\u001B[3m";
+    public static final String UNDERLINE = "\u001B[4m";
+    
     // Prompt styling constants
     public static final String PROMPT_HEADER_COLOR = GREEN_BOLD;
     public static final String PROMPT_TEXT_COLOR = GREEN;
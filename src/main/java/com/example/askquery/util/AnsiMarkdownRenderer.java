@@ -0,0 +1,358 @@
+package com.example.askquery.util;
+
+import com.vladsch.flexmark.ast.AutoLink;
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.Code;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.HardLineBreak;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.HtmlBlock;
+import com.vladsch.flexmark.ast.HtmlInline;
+import com.vladsch.flexmark.ast.Image;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
+import com.vladsch.flexmark.ast.Link;
+import com.vladsch.flexmark.ast.ListBlock;
+import com.vladsch.flexmark.ast.ListItem;
+import com.vladsch.flexmark.ast.MailLink;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.OrderedListItem;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.SoftLineBreak;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.ast.ThematicBreak;
+import com.vladsch.flexmark.ext.tables.TableBlock;
+import com.vladsch.flexmark.ext.tables.TableCell;
+import com.vladsch.flexmark.ext.tables.TableRow;
+import com.vladsch.flexmark.ext.tables.TableSeparator;
+import com.vladsch.flexmark.util.ast.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Renders markdown to ANSI-colored terminal text in-process, as an alternative to
+ * piping answers through bat.
+ *
+ * Works on the flexmark AST produced by {@link MarkdownRenderer#parse(String)}: headings,
+ * emphasis, inline code, links, block quotes, nested lists, tables (aligned by display
+ * width, so CJK text lines up) and fenced code with {@link SyntaxHighlighter}. Colors
+ * come from {@link AnsiColors} and follow the Monokai scheme used for HTML export.
+ */
+public class AnsiMarkdownRenderer {
+
+    private static final Pattern ANSI_ESCAPE = Pattern.compile("\u001B\\[[0-9;]*m");
+    private static final String BORDER_COLOR = AnsiColors.BLACK_BOLD;
+    private static final String CODE_COLOR = AnsiColors.YELLOW;
+    private static final String LINK_COLOR = AnsiColors.CYAN;
+    private static final int RULE_WIDTH = 40;
+
+    /**
+     * Render a markdown document for the terminal
+     * @param markdown the markdown text
+     * @return ANSI-colored text ending with a newline, or an empty string for empty input
+     */
+    public static String render(String markdown) {
+        if (markdown == null || markdown.isEmpty()) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(markdown.length() + markdown.length() / 4);
+        Node document = MarkdownRenderer.parse(markdown);
+        for (Node block = document.getFirstChild(); block != null; block = block.getNext()) {
+            renderBlock(block, out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Render one top-level block followed by a blank line separating it from the next
+     */
+    public static void renderBlock(Node block, StringBuilder out) {
+        int start = out.length();
+        renderBlock(block, "", out);
+        if (out.length() > start) {
+            out.append('\n');
+        }
+    }
+
+    private static void renderBlock(Node block, String indent, StringBuilder out) {
+        if (block instanceof Heading) {
+            renderHeading((Heading) block, indent, out);
+        } else if (block instanceof Paragraph) {
+            appendLines(renderInline(block), indent, out);
+        } else if (block instanceof FencedCodeBlock) {
+            FencedCodeBlock code = (FencedCodeBlock) block;
+            String info = code.getInfo().toString().trim();
+            String language = info.isEmpty() ? "" : info.split("\\s+")[0];
+            renderCode(code.getContentChars().toString(), language, indent, out);
+        } else if (block instanceof IndentedCodeBlock) {
+            renderCode(((IndentedCodeBlock) block).getContentChars().toString(), "", indent, out);
+        } else if (block instanceof ListBlock) {
+            renderList((ListBlock) block, indent, out);
+        } else if (block instanceof BlockQuote) {
+            String quoteIndent = indent + AnsiColors.colorize("│ ", BORDER_COLOR);
+            renderChildren(block, quoteIndent, out, true);
+        } else if (block instanceof TableBlock) {
+            renderTable((TableBlock) block, indent, out);
+        } else if (block instanceof ThematicBreak) {
+            out.append(indent).append(AnsiColors.colorize("─".repeat(RULE_WIDTH), BORDER_COLOR)).append('\n');
+        } else if (block instanceof HtmlBlock) {
+            appendLines(stripTrailingNewline(block.getChars().toString()), indent, out);
+        } else if (block.hasChildren()) {
+            renderChildren(block, indent, out, true);
+        } else {
+            appendLines(stripTrailingNewline(block.getChars().toString()), indent, out);
+        }
+    }
+
+    private static void renderChildren(Node parent, String indent, StringBuilder out, boolean separate) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNext()) {
+            renderBlock(child, indent, out);
+            if (separate && child.getNext() != null) {
+                out.append(indent.stripTrailing()).append('\n');
+            }
+        }
+    }
+
+    private static void renderHeading(Heading heading, String indent, StringBuilder out) {
+        String color;
+        switch (heading.getLevel()) {
+            case 1:
+                color = AnsiColors.GREEN_BOLD;
+                break;
+            case 2:
+                color = AnsiColors.CYAN_BOLD;
+                break;
+            case 3:
+                color = AnsiColors.YELLOW_BOLD;
+                break;
+            default:
+                color = AnsiColors.PURPLE_BOLD;
+        }
+        String text = renderInline(heading);
+        out.append(indent).append(color).append("#".repeat(heading.getLevel())).append(' ')
+                .append(text.replace(AnsiColors.RESET, AnsiColors.RESET + color)).append(AnsiColors.RESET).append('\n');
+        if (heading.getLevel() == 1) {
+            int width = Math.max(3, displayWidth(text) + 2);
+            out.append(indent).append(AnsiColors.colorize("═".repeat(width), AnsiColors.GREEN)).append('\n');
+        }
+    }
+
+    private static void renderCode(String code, String language, String indent, StringBuilder out) {
+        appendCodeHeader(language, indent, out);
+        SyntaxHighlighter highlighter = new SyntaxHighlighter(language);
+        for (String line : stripTrailingNewline(code).split("\n", -1)) {
+            appendCodeLine(highlighter, line, indent, out);
+        }
+        appendCodeFooter(indent, out);
+    }
+
+    static void appendCodeHeader(String language, String indent, StringBuilder out) {
+        out.append(indent).append(AnsiColors.colorize("┌─" + (language.isEmpty() ? "" : " " + language), BORDER_COLOR))
+                .append('\n');
+    }
+
+    static void appendCodeLine(SyntaxHighlighter highlighter, String line, String indent, StringBuilder out) {
+        out.append(indent).append(AnsiColors.colorize("│ ", BORDER_COLOR)).append(highlighter.highlightLine(line))
+                .append('\n');
+    }
+
+    static void appendCodeFooter(String indent, StringBuilder out) {
+        out.append(indent).append(AnsiColors.colorize("└─", BORDER_COLOR)).append('\n');
+    }
+
+    private static void renderList(ListBlock list, String indent, StringBuilder out) {
+        int number = list instanceof OrderedList ? ((OrderedList) list).getStartNumber() : 1;
+        for (Node item = list.getFirstChild(); item != null; item = item.getNext()) {
+            if (!(item instanceof ListItem)) {
+                continue;
+            }
+            String marker = item instanceof OrderedListItem ? number++ + "." : "•";
+            String coloredMarker = AnsiColors.colorize(marker, AnsiColors.PURPLE);
+            String childIndent = indent + " ".repeat(marker.length() + 1);
+            StringBuilder itemOut = new StringBuilder();
+            boolean first = true;
+            for (Node child = item.getFirstChild(); child != null; child = child.getNext()) {
+                if (!first && !list.isTight()) {
+                    itemOut.append('\n');
+                }
+                renderBlock(child, childIndent, itemOut);
+                first = false;
+            }
+            // The first line carries the marker in place of the indentation
+            String rendered = itemOut.length() == 0 ? childIndent + "\n" : itemOut.toString();
+            out.append(indent).append(coloredMarker).append(' ').append(rendered.substring(childIndent.length()));
+            if (!list.isTight() && item.getNext() != null) {
+                out.append('\n');
+            }
+        }
+    }
+
+    private static void renderTable(TableBlock table, String indent, StringBuilder out) {
+        List<List<String>> rows = new ArrayList<>();
+        List<Boolean> headerRows = new ArrayList<>();
+        collectRows(table, rows, headerRows);
+        int columns = 0;
+        for (List<String> row : rows) {
+            columns = Math.max(columns, row.size());
+        }
+        int[] widths = new int[columns];
+        for (List<String> row : rows) {
+            for (int c = 0; c < row.size(); c++) {
+                widths[c] = Math.max(widths[c], displayWidth(row.get(c)));
+            }
+        }
+        out.append(indent).append(border("┌", "┬", "┐", widths)).append('\n');
+        for (int r = 0; r < rows.size(); r++) {
+            appendTableRow(rows.get(r), widths, headerRows.get(r), indent, out);
+            if (headerRows.get(r) && (r + 1 >= rows.size() || !headerRows.get(r + 1))) {
+                out.append(indent).append(border("├", "┼", "┤", widths)).append('\n');
+            }
+        }
+        out.append(indent).append(border("└", "┴", "┘", widths)).append('\n');
+    }
+
+    /**
+     * Append one table row with every cell padded to its column width; a cell wider than
+     * its column pushes the rest of the row to the right
+     */
+    static void appendTableRow(List<String> row, int[] widths, boolean header, String indent, StringBuilder out) {
+        String bar = AnsiColors.colorize("│", BORDER_COLOR);
+        out.append(indent).append(bar);
+        for (int c = 0; c < widths.length; c++) {
+            String cell = c < row.size() ? row.get(c) : "";
+            if (header) {
+                cell = AnsiColors.GREEN_BOLD + cell.replace(AnsiColors.RESET, AnsiColors.RESET + AnsiColors.GREEN_BOLD)
+                        + AnsiColors.RESET;
+            }
+            out.append(' ').append(cell).append(" ".repeat(Math.max(0, widths[c] - displayWidth(cell)) + 1)).append(bar);
+        }
+        out.append('\n');
+    }
+
+    private static void collectRows(Node node, List<List<String>> rows, List<Boolean> headerRows) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+            if (child instanceof TableSeparator) {
+                continue;
+            }
+            if (child instanceof TableRow) {
+                List<String> cells = new ArrayList<>();
+                boolean header = false;
+                for (Node cell = child.getFirstChild(); cell != null; cell = cell.getNext()) {
+                    if (cell instanceof TableCell) {
+                        cells.add(renderInline(cell).trim());
+                        header |= ((TableCell) cell).isHeader();
+                    }
+                }
+                rows.add(cells);
+                headerRows.add(header);
+            } else {
+                collectRows(child, rows, headerRows);
+            }
+        }
+    }
+
+    static String border(String left, String middle, String right, int[] widths) {
+        StringBuilder line = new StringBuilder(left);
+        for (int c = 0; c < widths.length; c++) {
+            line.append("─".repeat(widths[c] + 2)).append(c + 1 < widths.length ? middle : right);
+        }
+        return AnsiColors.colorize(line.toString(), BORDER_COLOR);
+    }
+
+    /**
+     * Render the inline content of a block; line breaks inside it are kept as '\n'
+     */
+    static String renderInline(Node parent) {
+        StringBuilder out = new StringBuilder();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNext()) {
+            renderInlineNode(node, out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Render a fragment of inline markdown, such as a table cell, on its own
+     */
+    static String renderInline(String markdown) {
+        Node block = MarkdownRenderer.parse(markdown).getFirstChild();
+        return block == null ? "" : renderInline(block);
+    }
+
+    private static void renderInlineNode(Node node, StringBuilder out) {
+        if (node instanceof Text) {
+            out.append(node.getChars().unescape());
+        } else if (node instanceof Code) {
+            out.append(CODE_COLOR).append(((Code) node).getText()).append(AnsiColors.RESET);
+        } else if (node instanceof StrongEmphasis) {
+            out.append(AnsiColors.BOLD).append(renderInline(node)).append(AnsiColors.RESET);
+        } else if (node instanceof Emphasis) {
+            out.append(AnsiColors.ITALIC).append(renderInline(node)).append(AnsiColors.RESET);
+        } else if (node instanceof Link) {
+            Link link = (Link) node;
+            String text = renderInline(node);
+            String url = link.getUrl().toString();
+            out.append(AnsiColors.UNDERLINE).append(LINK_COLOR).append(text).append(AnsiColors.RESET);
+            if (!url.isEmpty() && !url.equals(text)) {
+                out.append(AnsiColors.colorize(" (" + url + ")", BORDER_COLOR));
+            }
+        } else if (node instanceof Image) {
+            out.append(AnsiColors.colorize("[image: " + renderInline(node) + "] " + ((Image) node).getUrl(), LINK_COLOR));
+        } else if (node instanceof AutoLink || node instanceof MailLink) {
+            out.append(AnsiColors.UNDERLINE).append(LINK_COLOR).append(node.getChars().toString()
+                    .replaceAll("^<|>$", "")).append(AnsiColors.RESET);
+        } else if (node instanceof SoftLineBreak || node instanceof HardLineBreak) {
+            out.append('\n');
+        } else if (node instanceof HtmlInline) {
+            out.append(node.getChars());
+        } else if (node.hasChildren()) {
+            out.append(renderInline(node));
+        } else {
+            out.append(node.getChars().unescape());
+        }
+    }
+
+    private static void appendLines(String text, String indent, StringBuilder out) {
+        for (String line : text.split("\n", -1)) {
+            out.append(indent).append(line).append('\n');
+        }
+    }
+
+    private static String stripTrailingNewline(String text) {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Number of terminal columns the text occupies, ignoring ANSI escapes and counting
+     * East Asian wide characters as two columns
+     */
+    static int displayWidth(String text) {
+        String plain = ANSI_ESCAPE.matcher(text).replaceAll("");
+        int width = 0;
+        for (int i = 0; i < plain.length(); ) {
+            int cp = plain.codePointAt(i);
+            width += isWide(cp) ? 2 : 1;
+            i += Character.charCount(cp);
+        }
+        return width;
+    }
+
+    private static boolean isWide(int cp) {
+        return (cp >= 0x1100 && cp <= 0x115F)
+                || (cp >= 0x2E80 && cp <= 0xA4CF && cp != 0x303F)
+                || (cp >= 0xAC00 && cp <= 0xD7A3)
+                || (cp >= 0xF900 && cp <= 0xFAFF)
+                || (cp >= 0xFE30 && cp <= 0xFE4F)
+                || (cp >= 0xFF00 && cp <= 0xFF60)
+                || (cp >= 0xFFE0 && cp <= 0xFFE6)
+                || (cp >= 0x1F300 && cp <= 0x1F64F)
+                || (cp >= 0x1F900 && cp <= 0x1F9FF)
+                || (cp >= 0x20000 && cp <= 0x3FFFD);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.askquery.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Utility class for compressing stored answers with the JDK's zlib {@link Deflater}.
+ *
+ * A compressor may use a preset dictionary of text common to many answers, which helps
+ * most for short answers. The zlib header records the dictionary's Adler-32 checksum, so
+ * {@link #decompress(byte[])} picks the right one from those registered with
+ * {@link #registerDictionary(byte[])} without any extra bookkeeping.
+ */
+public class AnswerCompressor {
+
+    // Shorter answers rarely shrink enough to pay for the zlib header and Base64 in JSON
+    private static final int MIN_COMPRESS_LENGTH = 128;
+    private static final Map<Long, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+
+    private final byte[] dictionary;
+
+    /**
+     * @param dictionary preset dictionary, or null to compress without one
+     */
+    public AnswerCompressor(byte[] dictionary) {
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            registerDictionary(dictionary);
+        }
+    }
+
+    /**
+     * Compress an answer
+     * @param text the answer
+     * @return zlib data, or null if the answer is short or would not get smaller
+     */
+    public byte[] compress(String text) {
+        if (text == null || text.length() < MIN_COMPRESS_LENGTH) {
+            return null;
+        }
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() >= input.length) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress data produced by {@link #compress(String)}
+     * @throws DataFormatException if the data is corrupt or needs an unknown dictionary
+     */
+    public static String decompress(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        byte[] dict = DICTIONARIES.get(inflater.getAdler() & 0xFFFFFFFFL);
+                        if (dict == null) {
+                            throw new DataFormatException("Unknown compression dictionary");
+                        }
+                        inflater.setDictionary(dict);
+                    } else if (inflater.needsInput()) {
+                        throw new DataFormatException("Truncated compressed answer");
+                    }
+                    continue;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Makes a dictionary available for decompression
+     */
+    public static void registerDictionary(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        DICTIONARIES.put(adler.getValue() & 0xFFFFFFFFL, dictionary);
+    }
+
+    /**
+     * Builds a preset dictionary from sample answers: the words and markdown tokens that
+     * save the most bytes across samples, with the most frequent placed last, since
+     * deflate encodes nearer matches more cheaply
+     * @param samples past answers
+     * @param maxSize dictionary size limit in bytes (deflate looks back at most 32 KB)
+     * @return the dictionary, empty if the samples share nothing worth keeping
+     */
+    public static byte[] trainDictionary(List<String> samples, int maxSize) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            for (String token : sample.split("\\s+")) {
+                if (token.length() >= 3 && token.length() <= 64) {
+                    counts.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (e.getValue() >= 3) {
+                ranked.add(e);
+            }
+        }
+        ranked.sort((a, b) -> Long.compare(
+                (long) b.getValue() * b.getKey().length(), (long) a.getValue() * a.getKey().length()));
+        List<String> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> e : ranked) {
+            int length = e.getKey().getBytes(StandardCharsets.UTF_8).length + 1;
+            if (size + length > maxSize) {
+                continue;
+            }
+            chosen.add(e.getKey());
+            size += length;
+        }
+        chosen.sort((a, b) -> Integer.compare(counts.get(a), counts.get(b)));
+        return String.join(" ", chosen).getBytes(StandardCharsets.UTF_8);
+    }
+}
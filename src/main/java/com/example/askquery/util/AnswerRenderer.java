@@ -0,0 +1,44 @@
+package com.example.askquery.util;
+
+import java.util.Locale;
+
+/**
+ * Utility class for printing markdown answers to the terminal with the configured renderer
+ */
+public class AnswerRenderer {
+
+    /** Pipe answers through the external bat command, falling back to {@link #ANSI} */
+    public static final String BAT = "bat";
+    /** Render answers in-process with {@link AnsiMarkdownRenderer} */
+    public static final String ANSI = "ansi";
+    /** Print answers as they are */
+    public static final String PLAIN = "plain";
+
+    /**
+     * Normalizes a configured renderer name, treating unknown names as {@link #BAT}
+     */
+    public static String resolve(String renderer) {
+        String name = renderer == null ? "" : renderer.trim().toLowerCase(Locale.ROOT);
+        return name.equals(ANSI) || name.equals(PLAIN) ? name : BAT;
+    }
+
+    /**
+     * Print a markdown answer on its own lines
+     * @param markdown the answer
+     * @param renderer one of {@link #BAT}, {@link #ANSI} or {@link #PLAIN}
+     * @param batTheme theme passed to bat
+     */
+    public static void print(String markdown, String renderer, String batTheme) {
+        String mode = resolve(renderer);
+        if (mode.equals(BAT) && BatRenderer.isBatAvailable() && BatRenderer.renderToTerminal(markdown, batTheme)) {
+            return;
+        }
+        if (mode.equals(PLAIN)) {
+            System.out.println(markdown);
+            return;
+        }
+        // Also the fallback when bat is missing or fails
+        System.out.print(AnsiMarkdownRenderer.render(markdown));
+        System.out.flush();
+    }
+}
@@ -1,41 +1,148 @@
 package com.example.askquery.util;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
- * Utility class for rendering markdown content using bat command with syntax highlighting
+ * Utility class for rendering markdown content using bat command with syntax highlighting.
+ *
+ * Whether bat is installed, its version and its themes are probed once per bat command
+ * on a background thread (started by {@link #setBatCommand(String)}) and cached, so
+ * rendering an answer spawns a single process. The answer is piped to bat's stdin and
+ * its output copied to the terminal in large chunks.
  */
 public class BatRenderer {
 
-    private static String batCommand = "/usr/local/bin/bat";
+    private static volatile String batCommand = "/usr/local/bin/bat";
     private static final String DEFAULT_THEME = "Monokai Extended";
     private static final int RENDER_TIMEOUT_SECONDS = 30;
+    private static final int PROBE_TIMEOUT_SECONDS = 5;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static CompletableFuture<Capabilities> capabilities;
+
+    /**
+     * What the configured bat command supports, as found by one probe
+     */
+    private static final class Capabilities {
+        static final Capabilities NONE = new Capabilities(false, null, Collections.emptySet());
+
+        final boolean available;
+        final String version;
+        final Set<String> themes;
+
+        Capabilities(boolean available, String version, Set<String> themes) {
+            this.available = available;
+            this.version = version;
+            this.themes = themes;
+        }
+    }
 
     /**
-     * Sets the bat command path
+     * Sets the bat command path and starts probing it in the background
      */
-    public static void setBatCommand(String command) {
+    public static synchronized void setBatCommand(String command) {
+        if (command != null && command.equals(batCommand) && capabilities != null) {
+            return;
+        }
         batCommand = command;
+        capabilities = null;
+        probeAsync();
     }
 
     /**
-     * Checks if bat command is available on the system
+     * Starts probing the bat command on a background thread unless a probe already ran
+     * or is running. Rendering waits for the probe only if it has not finished yet.
      */
-    public static boolean isBatAvailable() {
+    public static synchronized void probeAsync() {
+        if (capabilities != null) {
+            return;
+        }
+        String command = batCommand;
+        CompletableFuture<Capabilities> probe = new CompletableFuture<>();
+        capabilities = probe;
+        Thread thread = new Thread(() -> probe.complete(probe(command)), "bat-probe");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Capabilities capabilities() {
+        CompletableFuture<Capabilities> probe;
+        synchronized (BatRenderer.class) {
+            if (capabilities == null) {
+                probeAsync();
+            }
+            probe = capabilities;
+        }
         try {
-            Process process = new ProcessBuilder(batCommand, "--version")
+            return probe.get(PROBE_TIMEOUT_SECONDS * 2L, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return Capabilities.NONE;
+        }
+    }
+
+    private static Capabilities probe(String command) {
+        List<String> versionOutput = run(command, "--version");
+        if (versionOutput == null) {
+            return Capabilities.NONE;
+        }
+        String version = versionOutput.isEmpty() ? "" : versionOutput.get(0).trim();
+        List<String> themeOutput = run(command, "--list-themes", "--color=never");
+        Set<String> themes = themeOutput == null ? Collections.emptySet()
+                : themeOutput.stream().map(String::trim).filter(t -> !t.isEmpty())
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
+        return new Capabilities(true, version, Collections.unmodifiableSet(themes));
+    }
+
+    /**
+     * Runs a short bat command and returns its output lines, or null if it failed
+     */
+    private static List<String> run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
                     .start();
-            return process.waitFor(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS) &&
-                    process.exitValue() == 0;
+            List<String> lines;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                lines = reader.lines().collect(Collectors.toList());
+            }
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return null;
+            }
+            return process.exitValue() == 0 ? lines : null;
         } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
+    /**
+     * Checks if bat command is available on the system
+     */
+    public static boolean isBatAvailable() {
+        return capabilities().available;
+    }
+
+    /**
+     * Gets the first line of {@code bat --version}, or null if bat is not available
+     */
+    public static String getVersion() {
+        return capabilities().version;
+    }
+
     /**
      * Renders markdown content to terminal using bat with syntax highlighting
      *
@@ -51,43 +158,49 @@ public class BatRenderer {
         String actualTheme = theme != null && !theme.isEmpty() ? theme : DEFAULT_THEME;
 
         try {
-            // Create temporary file with markdown content
-            Path tempFile = Files.createTempFile("qwen_response_", ".md");
-            Files.write(tempFile, markdownContent.getBytes());
-
-            try {
-                // Build bat command with appropriate options
-                ProcessBuilder pb = new ProcessBuilder(
-                        batCommand,
-                        tempFile.toString(),
-                        "--language=md",
-                        "--theme=" + actualTheme,
-                        "--style=rule",
-                        "--paging=never",
-                        "--decorations=always",
-                        "--color=always"
-                );
-
-                Process process = pb.start();
-
-                // Capture and display output
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(process.getInputStream())
-                );
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    System.out.println(line);
+            // Build bat command with appropriate options, reading the content from stdin
+            ProcessBuilder pb = new ProcessBuilder(
+                    batCommand,
+                    "--language=md",
+                    "--theme=" + actualTheme,
+                    "--style=rule",
+                    "--paging=never",
+                    "--decorations=always",
+                    "--color=always",
+                    "-"
+            ).redirectError(ProcessBuilder.Redirect.DISCARD);
+
+            Process process = pb.start();
+
+            // Feed stdin from another thread, so that a large answer cannot deadlock
+            // against bat's output filling the pipe
+            byte[] content = markdownContent.getBytes(StandardCharsets.UTF_8);
+            Thread feeder = new Thread(() -> {
+                try (OutputStream in = process.getOutputStream()) {
+                    in.write(content);
+                } catch (IOException ignored) {
+                    // bat exited early; its exit code reports the failure
                 }
+            }, "bat-input");
+            feeder.setDaemon(true);
+            feeder.start();
+
+            // Copy the output to the terminal in large chunks
+            PrintStream terminal = System.out;
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            try (InputStream out = process.getInputStream()) {
+                int n;
+                while ((n = out.read(buffer)) > 0) {
+                    terminal.write(buffer, 0, n);
+                }
+            }
+            terminal.flush();
 
-                int exitCode = process.waitFor(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS) ? process.exitValue() : -1;
-
-                return exitCode == 0;
-
-            } finally {
-                // Clean up temporary file
-                Files.deleteIfExists(tempFile);
+            if (!process.waitFor(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
             }
+            return process.exitValue() == 0;
 
         } catch (Exception e) {
             System.err.println("Error rendering with bat: " + e.getMessage());
@@ -109,21 +222,7 @@ public class BatRenderer {
      * Gets a list of available bat themes
      */
     public static String[] getAvailableThemes() {
-        if (!isBatAvailable()) {
-            return new String[0];
-        }
-
-        try {
-            Process process = new ProcessBuilder(batCommand, "--list-themes").start();
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream())
-            );
-
-            return reader.lines().toArray(String[]::new);
-
-        } catch (Exception e) {
-            return new String[0];
-        }
+        return capabilities().themes.toArray(new String[0]);
     }
 
     /**
@@ -133,13 +232,6 @@ public class BatRenderer {
         if (theme == null || theme.isEmpty()) {
             return false;
         }
-
-        String[] themes = getAvailableThemes();
-        for (String availableTheme : themes) {
-            if (availableTheme.trim().equals(theme)) {
-                return true;
-            }
-        }
-        return false;
+        return capabilities().themes.contains(theme.trim());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.example.askquery.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility class for opening a file or URL in the desktop browser
+ */
+public class BrowserLauncher {
+
+    private static final int LAUNCH_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Opens a file path or URL with the platform's launcher (open, start or xdg-open)
+     * @return false if the launcher could not be started or reported a failure
+     */
+    public static boolean open(String target) {
+        try {
+            // Try different browsers/commands based on OS
+            String os = System.getProperty("os.name").toLowerCase();
+            Process process;
+
+            if (os.contains("mac")) {
+                process = Runtime.getRuntime().exec(new String[]{"open", target});
+            } else if (os.contains("win")) {
+                process = Runtime.getRuntime().exec(new String[]{"cmd", "/c", "start", "\"\"", target});
+            } else {
+                // Linux and other Unix-like systems
+                process = Runtime.getRuntime().exec(new String[]{"xdg-open", target});
+            }
+
+            if (!process.waitFor(LAUNCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                // The launcher is still running; the browser is likely open anyway
+                return true;
+            }
+            if (process.exitValue() != 0) {
+                System.err.println(AnsiColors.promptError("Failed to open browser: ") + "exit code " + process.exitValue());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            System.err.println(AnsiColors.promptError("Failed to open browser: ") + e.getMessage());
+            return false;
+        }
+    }
+}
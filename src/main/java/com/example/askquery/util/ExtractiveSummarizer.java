@@ -0,0 +1,205 @@
+package com.example.askquery.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Summarizes conversation rounds locally by picking their most telling sentences.
+ *
+ * Each round becomes one block: the question, shortened, and the answer sentences whose
+ * terms (Latin words, CJK character pairs) recur most in the round, the question's terms
+ * counting triple, kept in their original order. Code block bodies are left out. A
+ * summary is a sequence of such blocks separated by blank lines; when it grows past its
+ * budget the oldest blocks are dropped, so the summary rolls forward with the conversation.
+ */
+public class ExtractiveSummarizer {
+
+    static final String QUESTION_PREFIX = "Q: ";
+    static final String ANSWER_PREFIX = "A: ";
+    private static final String BLOCK_SEPARATOR = "\n\n";
+    private static final int QUESTION_TOKENS = 48;
+    private static final int MIN_ROUND_TOKENS = 60;
+
+    private static final Pattern CODE_BLOCK = Pattern.compile("(?ms)^\\s*(```|~~~).*?^\\s*\\1[^\\n]*$");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?。！？；;])\\s+|(?<=[。！？；])|\\n+");
+    private static final Pattern MARKUP = Pattern.compile("^(?:[#>*+|\\s-]+|\\d+[.)]\\s+)+|[*_`|]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LATIN_WORD = Pattern.compile("[A-Za-z][A-Za-z0-9_]{2,}");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "are", "but", "not", "you", "all", "can", "was", "one", "our", "has",
+            "this", "that", "with", "from", "they", "will", "would", "there", "their", "what", "which",
+            "when", "your", "have", "more", "also", "into", "than", "then", "them", "these", "some",
+            "such", "only", "other", "its", "use", "how", "why", "may", "each", "any", "been", "were"));
+
+    private ExtractiveSummarizer() {
+    }
+
+    /**
+     * Extends a rolling summary with conversation messages
+     * @param previous the summary so far, may be empty
+     * @param messages messages with "role" and "content", oldest first
+     * @param maxTokens estimated tokens the summary may take
+     * @return the new summary, within the budget
+     */
+    public static String summarize(String previous, List<Map<String, String>> messages, int maxTokens) {
+        List<String> blocks = new ArrayList<>();
+        if (previous != null && !previous.isBlank()) {
+            blocks.addAll(Arrays.asList(previous.split(BLOCK_SEPARATOR)));
+        }
+        int roundTokens = Math.max(MIN_ROUND_TOKENS, maxTokens / 4);
+        String question = null;
+        for (Map<String, String> message : messages) {
+            String content = message.getOrDefault("content", "");
+            if ("assistant".equals(message.get("role"))) {
+                blocks.add(summarizeRound(question, content, roundTokens));
+                question = null;
+            } else {
+                if (question != null) {
+                    blocks.add(summarizeRound(question, "", roundTokens));
+                }
+                question = content;
+            }
+        }
+        if (question != null) {
+            blocks.add(summarizeRound(question, "", roundTokens));
+        }
+
+        // Drop the oldest rounds until the summary fits
+        int tokens = 0;
+        int first = blocks.size();
+        while (first > 0) {
+            int blockTokens = TokenEstimator.estimate(blocks.get(first - 1)) + 1;
+            if (tokens + blockTokens > maxTokens) {
+                break;
+            }
+            tokens += blockTokens;
+            first--;
+        }
+        return String.join(BLOCK_SEPARATOR, blocks.subList(first, blocks.size()));
+    }
+
+    /**
+     * One summary block for a question and its answer
+     */
+    static String summarizeRound(String question, String answer, int maxTokens) {
+        StringBuilder block = new StringBuilder();
+        String shortQuestion = "";
+        if (question != null && !question.isBlank()) {
+            shortQuestion = TokenEstimator.truncate(collapse(question), QUESTION_TOKENS);
+            block.append(QUESTION_PREFIX).append(shortQuestion);
+        }
+        int budget = maxTokens - TokenEstimator.estimate(block.toString()) - 2;
+        String sentences = pickSentences(shortQuestion, answer, budget);
+        if (!sentences.isEmpty()) {
+            if (block.length() > 0) {
+                block.append('\n');
+            }
+            block.append(ANSWER_PREFIX).append(sentences);
+        }
+        return block.toString();
+    }
+
+    private static String pickSentences(String question, String answer, int budget) {
+        if (answer == null || answer.isBlank() || budget <= 0) {
+            return "";
+        }
+        List<String> sentences = new ArrayList<>();
+        for (String raw : SENTENCE_END.split(CODE_BLOCK.matcher(answer).replaceAll("\n"))) {
+            String sentence = collapse(MARKUP.matcher(raw).replaceAll(""));
+            if (sentence.length() > 1) {
+                sentences.add(sentence);
+            }
+        }
+        if (sentences.isEmpty()) {
+            return "";
+        }
+
+        Map<String, Integer> frequency = new HashMap<>();
+        List<List<String>> sentenceTerms = new ArrayList<>();
+        for (String sentence : sentences) {
+            List<String> terms = terms(sentence);
+            sentenceTerms.add(terms);
+            for (String term : terms) {
+                frequency.merge(term, 1, Integer::sum);
+            }
+        }
+        for (String term : terms(question)) {
+            frequency.merge(term, 3, Integer::sum);
+        }
+
+        double[] scores = new double[sentences.size()];
+        Integer[] order = new Integer[sentences.size()];
+        for (int i = 0; i < sentences.size(); i++) {
+            List<String> terms = sentenceTerms.get(i);
+            double sum = 0;
+            for (String term : new HashSet<>(terms)) {
+                sum += frequency.get(term);
+            }
+            scores[i] = terms.isEmpty() ? 0 : sum / Math.sqrt(terms.size());
+            order[i] = i;
+        }
+        // The opening sentence usually answers the question directly
+        scores[0] *= 1.5;
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        boolean[] chosen = new boolean[sentences.size()];
+        int remaining = budget;
+        for (int index : order) {
+            int tokens = TokenEstimator.estimate(sentences.get(index)) + 1;
+            if (tokens <= remaining) {
+                chosen[index] = true;
+                remaining -= tokens;
+            }
+        }
+        StringBuilder picked = new StringBuilder();
+        for (int i = 0; i < sentences.size(); i++) {
+            if (chosen[i]) {
+                if (picked.length() > 0) {
+                    picked.append(' ');
+                }
+                picked.append(sentences.get(i));
+            }
+        }
+        return picked.toString();
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        Matcher words = LATIN_WORD.matcher(text);
+        while (words.find()) {
+            String word = words.group().toLowerCase(Locale.ROOT);
+            if (!STOP_WORDS.contains(word)) {
+                terms.add(word);
+            }
+        }
+        int previous = -1;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                if (previous >= 0) {
+                    terms.add(new StringBuilder().appendCodePoint(previous).appendCodePoint(cp).toString());
+                }
+                previous = cp;
+            } else {
+                previous = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static String collapse(String text) {
+        return WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.askquery.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts a markdown answer to HTML fragments while it streams in.
+ *
+ * Like {@link StreamingMarkdownRenderer}, tokens are only scanned for line breaks, and a
+ * block is converted with {@link MarkdownRenderer#convertMarkdownToHtml(String)} once it
+ * is complete: at the blank line after it, when a code fence closes, or at once for a
+ * heading. Completed fragments never change, so a page can append them as they come;
+ * the open block can be previewed with {@link #tail()}.
+ */
+public class IncrementalHtmlRenderer {
+
+    private static final Pattern FENCE = Pattern.compile("^\\s*(`{3,}|~{3,}).*$");
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}#{1,6}(\\s.*)?$");
+
+    private final StringBuilder line = new StringBuilder();
+    // Markdown of the open block
+    private final StringBuilder block = new StringBuilder();
+    private String fence;
+
+    /**
+     * Feeds the next piece of the answer
+     * @return HTML of the blocks it completed, in order; usually empty
+     */
+    public List<String> accept(String token) {
+        List<String> completed = new ArrayList<>(0);
+        if (token == null || token.isEmpty()) {
+            return completed;
+        }
+        int start = 0;
+        int newline;
+        while ((newline = token.indexOf('\n', start)) >= 0) {
+            line.append(token, start, newline);
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                line.setLength(end - 1);
+            }
+            processLine(line.toString(), completed);
+            line.setLength(0);
+            start = newline + 1;
+        }
+        line.append(token, start, token.length());
+        return completed;
+    }
+
+    /**
+     * HTML preview of the open block, including the unfinished last line; it is replaced
+     * by a completed fragment later
+     */
+    public String tail() {
+        if (block.length() == 0 && line.length() == 0) {
+            return "";
+        }
+        String markdown = block.toString() + line;
+        if (fence != null) {
+            // Close the fence so the partial code renders as code
+            markdown += "\n" + fence + "\n";
+        }
+        return MarkdownRenderer.convertMarkdownToHtml(markdown);
+    }
+
+    /**
+     * Completes the answer
+     * @return HTML of the remaining open block, if any
+     */
+    public List<String> finish() {
+        List<String> completed = new ArrayList<>(1);
+        if (line.length() > 0) {
+            processLine(line.toString(), completed);
+            line.setLength(0);
+        }
+        fence = null;
+        commit(completed);
+        return completed;
+    }
+
+    private void processLine(String text, List<String> completed) {
+        if (fence != null) {
+            block.append(text).append('\n');
+            String trimmed = text.trim();
+            if (trimmed.startsWith(fence) && trimmed.chars().allMatch(c -> c == fence.charAt(0))) {
+                fence = null;
+                commit(completed);
+            }
+            return;
+        }
+        Matcher fenceStart = FENCE.matcher(text);
+        if (fenceStart.matches()) {
+            commit(completed);
+            fence = fenceStart.group(1);
+            block.append(text).append('\n');
+            return;
+        }
+        if (text.isBlank()) {
+            commit(completed);
+            return;
+        }
+        if (HEADING.matcher(text).matches()) {
+            commit(completed);
+            block.append(text).append('\n');
+            commit(completed);
+            return;
+        }
+        block.append(text).append('\n');
+    }
+
+    private void commit(List<String> completed) {
+        if (block.length() == 0) {
+            return;
+        }
+        completed.add(MarkdownRenderer.convertMarkdownToHtml(block.toString()));
+        block.setLength(0);
+    }
+}
@@ -7,9 +7,18 @@ import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for rendering markdown content
@@ -49,6 +58,13 @@ public class MarkdownRenderer {
                   .replace("'", "&#x27;");
     }
     
+    /**
+     * Parse markdown into a flexmark AST with the same extensions used for HTML output
+     */
+    public static Node parse(String markdown) {
+        return parser.parse(markdown == null ? "" : markdown);
+    }
+    
     /**
      * Convert markdown to HTML using flexmark library with extensions
      */
@@ -61,135 +77,217 @@ public class MarkdownRenderer {
         return renderer.render(document);
     }
     
+    /** File name of the shared stylesheet written next to exported pages */
+    public static final String STYLESHEET_FILE = "monokai.css";
+
+    /** Monokai color scheme for exported pages */
+    public static final String MONOKAI_CSS = """
+        body {
+            font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;
+            background-color: #272822;
+            color: #f8f8f2;
+            margin: 0;
+            padding: 20px;
+            line-height: 1.6;
+        }
+        .container {
+            width: 90%;
+            margin: 0 auto;
+        }
+        h1 {
+            color: #a6e22e;
+            border-bottom: 2px solid #a6e22e;
+            padding-bottom: 10px;
+        }
+        h2 {
+            color: #66d9ef;
+        }
+        h3 {
+            color: #fd971f;
+        }
+        h4, h5, h6 {
+            color: #ae81ff;
+        }
+        code {
+            background-color: #3c3d38;
+            color: #fd971f;
+            padding: 2px 4px;
+            border-radius: 3px;
+            font-family: 'Consolas', 'Courier New', monospace;
+        }
+        pre {
+            background-color: #2d2d2d;
+            border-left: 4px solid #a6e22e;
+            padding: 15px;
+            overflow-x: auto;
+            border-radius: 4px;
+        }
+        pre code {
+            background-color: transparent;
+            color: inherit;
+            padding: 0;
+        }
+        blockquote {
+            border-left: 4px solid #75715e;
+            margin: 0;
+            padding: 0 15px;
+            color: #75715e;
+        }
+        ul, ol {
+            padding-left: 20px;
+        }
+        li {
+            margin: 5px 0;
+        }
+        a {
+            color: #66d9ef;
+            text-decoration: none;
+        }
+        a:hover {
+            text-decoration: underline;
+        }
+        table {
+            border-collapse: collapse;
+            width: 100%;
+            margin: 15px 0;
+        }
+        th, td {
+            border: 1px solid #444;
+            padding: 8px 12px;
+            text-align: left;
+        }
+        th {
+            background-color: #3c3d38;
+            color: #a6e22e;
+        }
+        tr:nth-child(even) {
+            background-color: #2d2d2d;
+        }
+        .question {
+            background-color: #3c3d38;
+            padding: 15px;
+            border-radius: 5px;
+            margin-bottom: 20px;
+            border-left: 4px solid #a6e22e;
+        }
+        .response {
+            padding: 10px 0;
+        }
+        .timestamp {
+            color: #75715e;
+            font-size: 0.9em;
+            text-align: right;
+            margin-top: 20px;
+            font-style: italic;
+        }
+        ul.index {
+            display: flex;
+            flex-direction: column-reverse;
+            list-style: none;
+            padding-left: 0;
+        }
+        ul.index .timestamp {
+            margin-left: 10px;
+        }
+        """;
+
+    // The page template, split around the parts that vary per answer
+    private static final String PAGE_START = "<!DOCTYPE html>\n"
+            + "<html>\n"
+            + "<head>\n"
+            + "    <meta charset=\"utf-8\">\n"
+            + "    <title>";
+    private static final String PAGE_HEAD_END = "</head>\n"
+            + "<body>\n"
+            + "    <div class=\"container\">\n"
+            + "        <div class=\"question\">\n"
+            + "            <h1>❓ ";
+    private static final String PAGE_RESPONSE_START = "</h1>\n"
+            + "        </div>\n"
+            + "        \n"
+            + "        <div class=\"response\">\n"
+            + "            ";
+    private static final String PAGE_TIMESTAMP_START = "\n"
+            + "        </div>\n"
+            + "        \n"
+            + "        <div class=\"timestamp\">\n"
+            + "            Generated on ";
+    private static final String PAGE_END = "\n"
+            + "        </div>\n"
+            + "    </div>\n"
+            + "</body>\n"
+            + "</html>\n";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Directories whose stylesheet is known to be up to date
+    private static final Set<Path> writtenStylesheets = ConcurrentHashMap.newKeySet();
+
     /**
-     * Creates markdown content with Monokai color scheme styling
+     * Creates a self-contained page for an answer, with the Monokai stylesheet inlined
      */
     public static String createMonokaiStyledMarkdown(String question, String response) {
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html>\n");
-        html.append("<html>\n");
-        html.append("<head>\n");
-        html.append("    <meta charset=\"utf-8\">\n");
-        html.append("    <title>").append(escapeHtml(question)).append("</title>\n");
-        html.append("    <style>\n");
-        html.append("        body {\n");
-        html.append("            font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;\n");
-        html.append("            background-color: #272822;\n");
-        html.append("            color: #f8f8f2;\n");
-        html.append("            margin: 0;\n");
-        html.append("            padding: 20px;\n");
-        html.append("            line-height: 1.6;\n");
-        html.append("        }\n");
-        html.append("        .container {\n");
-        html.append("            width: 90%;\n");
-        html.append("            margin: 0 auto;\n");
-        html.append("        }\n");
-        html.append("        h1 {\n");
-        html.append("            color: #a6e22e;\n");
-        html.append("            border-bottom: 2px solid #a6e22e;\n");
-        html.append("            padding-bottom: 10px;\n");
-        html.append("        }\n");
-        html.append("        h2 {\n");
-        html.append("            color: #66d9ef;\n");
-        html.append("        }\n");
-        html.append("        h3 {\n");
-        html.append("            color: #fd971f;\n");
-        html.append("        }\n");
-        html.append("        h4, h5, h6 {\n");
-        html.append("            color: #ae81ff;\n");
-        html.append("        }\n");
-        html.append("        code {\n");
-        html.append("            background-color: #3c3d38;\n");
-        html.append("            color: #fd971f;\n");
-        html.append("            padding: 2px 4px;\n");
-        html.append("            border-radius: 3px;\n");
-        html.append("            font-family: 'Consolas', 'Courier New', monospace;\n");
-        html.append("        }\n");
-        html.append("        pre {\n");
-        html.append("            background-color: #2d2d2d;\n");
-        html.append("            border-left: 4px solid #a6e22e;\n");
-        html.append("            padding: 15px;\n");
-        html.append("            overflow-x: auto;\n");
-        html.append("            border-radius: 4px;\n");
-        html.append("        }\n");
-        html.append("        pre code {\n");
-        html.append("            background-color: transparent;\n");
-        html.append("            color: inherit;\n");
-        html.append("            padding: 0;\n");
-        html.append("        }\n");
-        html.append("        blockquote {\n");
-        html.append("            border-left: 4px solid #75715e;\n");
-        html.append("            margin: 0;\n");
-        html.append("            padding: 0 15px;\n");
-        html.append("            color: #75715e;\n");
-        html.append("        }\n");
-        html.append("        ul, ol {\n");
-        html.append("            padding-left: 20px;\n");
-        html.append("        }\n");
-        html.append("        li {\n");
-        html.append("            margin: 5px 0;\n");
-        html.append("        }\n");
-        html.append("        a {\n");
-        html.append("            color: #66d9ef;\n");
-        html.append("            text-decoration: none;\n");
-        html.append("        }\n");
-        html.append("        a:hover {\n");
-        html.append("            text-decoration: underline;\n");
-        html.append("        }\n");
-        html.append("        table {\n");
-        html.append("            border-collapse: collapse;\n");
-        html.append("            width: 100%;\n");
-        html.append("            margin: 15px 0;\n");
-        html.append("        }\n");
-        html.append("        th, td {\n");
-        html.append("            border: 1px solid #444;\n");
-        html.append("            padding: 8px 12px;\n");
-        html.append("            text-align: left;\n");
-        html.append("        }\n");
-        html.append("        th {\n");
-        html.append("            background-color: #3c3d38;\n");
-        html.append("            color: #a6e22e;\n");
-        html.append("        }\n");
-        html.append("        tr:nth-child(even) {\n");
-        html.append("            background-color: #2d2d2d;\n");
-        html.append("        }\n");
-        html.append("        .question {\n");
-        html.append("            background-color: #3c3d38;\n");
-        html.append("            padding: 15px;\n");
-        html.append("            border-radius: 5px;\n");
-        html.append("            margin-bottom: 20px;\n");
-        html.append("            border-left: 4px solid #a6e22e;\n");
-        html.append("        }\n");
-        html.append("        .response {\n");
-        html.append("            padding: 10px 0;\n");
-        html.append("        }\n");
-        html.append("        .timestamp {\n");
-        html.append("            color: #75715e;\n");
-        html.append("            font-size: 0.9em;\n");
-        html.append("            text-align: right;\n");
-        html.append("            margin-top: 20px;\n");
-        html.append("            font-style: italic;\n");
-        html.append("        }\n");
-        html.append("    </style>\n");
-        html.append("</head>\n");
-        html.append("<body>\n");
-        html.append("    <div class=\"container\">\n");
-        html.append("        <div class=\"question\">\n");
-        html.append("            <h1>❓ ").append(escapeHtml(question)).append("</h1>\n");
-        html.append("        </div>\n");
-        html.append("        \n");
-        html.append("        <div class=\"response\">\n");
-        html.append("            ").append(convertMarkdownToHtml(response)).append("\n");
-        html.append("        </div>\n");
-        html.append("        \n");
-        html.append("        <div class=\"timestamp\">\n");
-        html.append("            Generated on ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))).append("\n");
-        html.append("        </div>\n");
-        html.append("    </div>\n");
-        html.append("</body>\n");
-        html.append("</html>\n");
-        
+        StringBuilder html = new StringBuilder(MONOKAI_CSS.length() + 1024 + (response == null ? 0 : response.length() * 2));
+        try {
+            writeMonokaiPage(html, question, response, null);
+        } catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
         return html.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the page for an answer to a file, streaming the rendered markdown straight
+     * into a buffered UTF-8 writer. The page links to the shared stylesheet, which is
+     * written once if it is missing or outdated.
+     * @param stylesheet where the shared stylesheet lives; the page links to it relatively
+     */
+    public static void exportMonokaiPage(Path file, String question, String response, Path stylesheet) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        ensureStylesheet(stylesheet);
+        String href = directory.relativize(stylesheet.toAbsolutePath()).toString().replace('\\', '/');
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeMonokaiPage(out, question, response, href);
+        }
+    }
+
+    /**
+     * Writes the page from the precompiled template
+     * @param stylesheetHref link to the stylesheet, or null to inline it
+     */
+    public static void writeMonokaiPage(Appendable out, String question, String response, String stylesheetHref)
+            throws IOException {
+        String title = escapeHtml(question);
+        out.append(PAGE_START).append(title).append("</title>\n");
+        if (stylesheetHref == null) {
+            out.append("    <style>\n").append(MONOKAI_CSS).append("    </style>\n");
+        } else {
+            out.append("    <link rel=\"stylesheet\" href=\"").append(escapeHtml(stylesheetHref)).append("\">\n");
+        }
+        out.append(PAGE_HEAD_END).append(title).append(PAGE_RESPONSE_START);
+        if (response != null && !response.isEmpty()) {
+            renderer.render(parser.parse(response), out);
+        }
+        out.append(PAGE_TIMESTAMP_START).append(LocalDateTime.now().format(TIMESTAMP_FORMAT)).append(PAGE_END);
+    }
+
+    private static void ensureStylesheet(Path stylesheet) throws IOException {
+        Path path = stylesheet.toAbsolutePath();
+        if (writtenStylesheets.contains(path)) {
+            return;
+        }
+        byte[] css = MONOKAI_CSS.getBytes(StandardCharsets.UTF_8);
+        if (!Files.exists(path) || Files.size(path) != css.length) {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), STYLESHEET_FILE, ".tmp");
+            try {
+                Files.write(temp, css);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        writtenStylesheets.add(path);
+    }
+}
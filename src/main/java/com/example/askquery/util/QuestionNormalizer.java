@@ -0,0 +1,104 @@
+package com.example.askquery.util;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for normalizing questions before they are compared with history
+ */
+public class QuestionNormalizer {
+
+    // Punctuation except '#', which distinguishes names such as C#
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}&&[^#]]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NUMERIC_TOKEN = Pattern.compile("\\S*\\d\\S*");
+    private static final int SHINGLE_SIZE = 3;
+
+    /**
+     * Normalize a question for comparison.
+     * Applies NFKC (folds full-width letters, digits and CJK punctuation to their
+     * half-width forms), lowercases, drops punctuation and collapses whitespace
+     * @param question the question to normalize
+     * @return normalized question, empty for null input
+     */
+    public static String normalize(String question) {
+        if (question == null || question.isEmpty()) {
+            return "";
+        }
+        String folded = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        String withoutPunctuation = PUNCTUATION.matcher(folded).replaceAll(" ");
+        return WHITESPACE.matcher(withoutPunctuation).replaceAll(" ").trim();
+    }
+
+    /**
+     * Character shingles (3-grams) of an already normalized question, hashed to longs.
+     * Questions shorter than one shingle yield a single shingle of the whole text.
+     * @param normalized output of {@link #normalize(String)}
+     * @return set of shingle hashes
+     */
+    public static Set<Long> shingles(String normalized) {
+        Set<Long> shingles = new HashSet<>();
+        if (normalized == null || normalized.isEmpty()) {
+            return shingles;
+        }
+        if (normalized.length() <= SHINGLE_SIZE) {
+            shingles.add(hash64(normalized, 0, normalized.length()));
+            return shingles;
+        }
+        for (int i = 0; i + SHINGLE_SIZE <= normalized.length(); i++) {
+            shingles.add(hash64(normalized, i, i + SHINGLE_SIZE));
+        }
+        return shingles;
+    }
+
+    /**
+     * Words of an already normalized question that contain a digit, such as version
+     * numbers ("17", "3 11" from "3.11") or names like "utf8". Questions differing only
+     * in these ask about different things even when their text is nearly the same.
+     * @param normalized output of {@link #normalize(String)}
+     * @return set of such words
+     */
+    public static Set<String> numericTokens(String normalized) {
+        Set<String> tokens = new HashSet<>();
+        if (normalized == null || normalized.isEmpty()) {
+            return tokens;
+        }
+        Matcher matcher = NUMERIC_TOKEN.matcher(normalized);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    /**
+     * Jaccard similarity of two shingle sets
+     * @return value between 0 (disjoint) and 1 (identical)
+     */
+    public static double jaccard(Set<Long> a, Set<Long> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<Long> smaller = a.size() <= b.size() ? a : b;
+        Set<Long> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (Long shingle : smaller) {
+            if (larger.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private static long hash64(String s, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.askquery.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders a markdown answer to the terminal while it streams in, one token at a time.
+ *
+ * Tokens are only scanned for line breaks; work happens once per completed line. A block
+ * is printed with {@link AnsiMarkdownRenderer} as soon as it can no longer change:
+ * paragraphs and block quotes at the blank line that ends them, list items when the next
+ * item starts, headings and rules at once, code fences and table rows line by line. Only
+ * the trailing open block is held back, so every character is rendered a bounded number
+ * of times however long the answer grows. Table columns take the width of the header row
+ * (or of the separator, if wider), since later rows are not known yet.
+ */
+public class StreamingMarkdownRenderer implements Consumer<String> {
+
+    private static final Pattern FENCE = Pattern.compile("^(\\s*)(`{3,}|~{3,})\\s*([^`\\s]*).*$");
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}#{1,6}(\\s.*)?$");
+    private static final Pattern THEMATIC_BREAK = Pattern.compile("^ {0,3}([-*_])(\\s*\\1){2,}\\s*$");
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)([-*+]|\\d{1,9}[.)])(\\s+|$).*");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\s*\\|?\\s*:?-+:?\\s*(\\|\\s*:?-+:?\\s*)*\\|?\\s*$");
+
+    private final PrintStream out;
+    private final StringBuilder line = new StringBuilder();
+    // Lines of the open paragraph, list item or block quote
+    private final StringBuilder block = new StringBuilder();
+    private int blockIndent;
+    private boolean blockIsListItem;
+
+    private String fence;
+    private String fenceIndent;
+    private SyntaxHighlighter highlighter;
+
+    private int[] tableWidths;
+
+    public StreamingMarkdownRenderer(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Feeds the next piece of the answer
+     */
+    @Override
+    public void accept(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        StringBuilder rendered = new StringBuilder();
+        int start = 0;
+        int newline;
+        while ((newline = token.indexOf('\n', start)) >= 0) {
+            line.append(token, start, newline);
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                line.setLength(end - 1);
+            }
+            processLine(line.toString(), rendered);
+            line.setLength(0);
+            start = newline + 1;
+        }
+        line.append(token, start, token.length());
+        emit(rendered);
+    }
+
+    /**
+     * Renders whatever is still open once the answer is complete
+     */
+    public void finish() {
+        StringBuilder rendered = new StringBuilder();
+        if (line.length() > 0) {
+            processLine(line.toString(), rendered);
+            line.setLength(0);
+        }
+        if (fence != null) {
+            AnsiMarkdownRenderer.appendCodeFooter(fenceIndent, rendered);
+            rendered.append('\n');
+            fence = null;
+        }
+        closeTable(rendered);
+        flushBlock(rendered);
+        emit(rendered);
+    }
+
+    private void processLine(String text, StringBuilder rendered) {
+        if (fence != null) {
+            String trimmed = text.trim();
+            if (trimmed.startsWith(fence) && trimmed.chars().allMatch(c -> c == fence.charAt(0))) {
+                AnsiMarkdownRenderer.appendCodeFooter(fenceIndent, rendered);
+                rendered.append('\n');
+                fence = null;
+                highlighter = null;
+            } else {
+                AnsiMarkdownRenderer.appendCodeLine(highlighter, stripIndent(text, fenceIndent.length()), fenceIndent, rendered);
+            }
+            return;
+        }
+
+        if (tableWidths != null) {
+            if (!text.isBlank() && text.indexOf('|') >= 0) {
+                AnsiMarkdownRenderer.appendTableRow(cells(text), tableWidths, false, "", rendered);
+                return;
+            }
+            closeTable(rendered);
+        }
+
+        Matcher fenceStart = FENCE.matcher(text);
+        if (fenceStart.matches()) {
+            flushBlock(rendered);
+            fenceIndent = " ".repeat(leadingSpaces(text));
+            fence = fenceStart.group(2);
+            highlighter = new SyntaxHighlighter(fenceStart.group(3));
+            AnsiMarkdownRenderer.appendCodeHeader(fenceStart.group(3), fenceIndent, rendered);
+            return;
+        }
+        if (text.isBlank()) {
+            flushBlock(rendered);
+            return;
+        }
+        if (block.length() > 0 && TABLE_SEPARATOR.matcher(text).matches() && text.indexOf('|') >= 0
+                && block.indexOf("\n") == block.length() - 1 && block.indexOf("|") >= 0) {
+            openTable(block.toString(), text, rendered);
+            block.setLength(0);
+            return;
+        }
+        if (HEADING.matcher(text).matches() || (block.length() == 0 && THEMATIC_BREAK.matcher(text).matches())) {
+            flushBlock(rendered);
+            renderMarkdown(text, 0, rendered);
+            return;
+        }
+        if (LIST_ITEM.matcher(text).matches()) {
+            // The previous item is complete once the next one starts, with no blank line
+            // between the two as in a tight list
+            boolean afterItem = blockIsListItem;
+            if (flushBlock(rendered) && afterItem && rendered.length() > 1 && rendered.charAt(rendered.length() - 2) == '\n') {
+                rendered.setLength(rendered.length() - 1);
+            }
+            blockIndent = leadingSpaces(text);
+            blockIsListItem = true;
+        }
+        block.append(text).append('\n');
+    }
+
+    /**
+     * Renders the open paragraph, list item or block quote, if any
+     * @return whether there was one
+     */
+    private boolean flushBlock(StringBuilder rendered) {
+        if (block.length() == 0) {
+            return false;
+        }
+        StringBuilder text = new StringBuilder(block.length());
+        for (String blockLine : block.toString().split("\n")) {
+            text.append(stripIndent(blockLine, blockIndent)).append('\n');
+        }
+        renderMarkdown(text.toString(), blockIndent, rendered);
+        block.setLength(0);
+        blockIndent = 0;
+        blockIsListItem = false;
+        return true;
+    }
+
+    private static void renderMarkdown(String markdown, int indent, StringBuilder rendered) {
+        String output = AnsiMarkdownRenderer.render(markdown);
+        if (indent == 0) {
+            rendered.append(output);
+            return;
+        }
+        String prefix = " ".repeat(indent);
+        for (String outputLine : output.split("\n", -1)) {
+            if (!outputLine.isEmpty()) {
+                rendered.append(prefix).append(outputLine);
+            }
+            rendered.append('\n');
+        }
+        // split keeps an empty last element after the final newline
+        rendered.setLength(rendered.length() - 1);
+    }
+
+    private void openTable(String header, String separator, StringBuilder rendered) {
+        List<String> headerCells = cells(header.trim());
+        List<String> separatorCells = cells(separator);
+        tableWidths = new int[headerCells.size()];
+        for (int c = 0; c < tableWidths.length; c++) {
+            int dashes = c < separatorCells.size() ? separatorCells.get(c).length() : 0;
+            tableWidths[c] = Math.max(AnsiMarkdownRenderer.displayWidth(headerCells.get(c)), dashes);
+        }
+        rendered.append(AnsiMarkdownRenderer.border("┌", "┬", "┐", tableWidths)).append('\n');
+        AnsiMarkdownRenderer.appendTableRow(headerCells, tableWidths, true, "", rendered);
+        rendered.append(AnsiMarkdownRenderer.border("├", "┼", "┤", tableWidths)).append('\n');
+    }
+
+    private void closeTable(StringBuilder rendered) {
+        if (tableWidths == null) {
+            return;
+        }
+        rendered.append(AnsiMarkdownRenderer.border("└", "┴", "┘", tableWidths)).append("\n\n");
+        tableWidths = null;
+    }
+
+    /**
+     * Splits a table row on unescaped pipes and renders each cell's inline markup
+     */
+    private List<String> cells(String row) {
+        String text = row.trim();
+        if (text.startsWith("|")) {
+            text = text.substring(1);
+        }
+        if (text.endsWith("|") && !text.endsWith("\\|")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length() && text.charAt(i + 1) == '|') {
+                cell.append('|');
+                i++;
+            } else if (c == '|') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        List<String> rendered = new ArrayList<>(cells.size());
+        for (String raw : cells) {
+            rendered.add(TABLE_SEPARATOR.matcher(raw).matches() ? raw : AnsiMarkdownRenderer.renderInline(raw).trim());
+        }
+        return rendered;
+    }
+
+    private static int leadingSpaces(String text) {
+        int n = 0;
+        while (n < text.length() && text.charAt(n) == ' ') {
+            n++;
+        }
+        return n;
+    }
+
+    private static String stripIndent(String text, int indent) {
+        return text.substring(Math.min(indent, leadingSpaces(text)));
+    }
+
+    private void emit(StringBuilder rendered) {
+        if (rendered.length() > 0) {
+            out.print(rendered);
+            out.flush();
+        }
+    }
+}
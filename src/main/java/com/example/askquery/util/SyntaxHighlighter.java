@@ -0,0 +1,225 @@
+package com.example.askquery.util;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lightweight line-oriented syntax highlighter for code blocks in terminal output.
+ *
+ * It recognizes comments, string literals, numbers, keywords, annotations and capitalized
+ * type names, which covers the languages answers usually contain without a full lexer.
+ * Highlighting is done one line at a time; block comments and Python triple-quoted
+ * strings carry over to the following lines, so code can be highlighted as it arrives.
+ * Colors follow the Monokai scheme used for HTML export, mapped onto {@link AnsiColors}.
+ */
+public class SyntaxHighlighter {
+
+    static final String KEYWORD_COLOR = AnsiColors.RED;
+    static final String STRING_COLOR = AnsiColors.YELLOW;
+    static final String NUMBER_COLOR = AnsiColors.PURPLE;
+    static final String COMMENT_COLOR = AnsiColors.BLACK_BOLD;
+    static final String TYPE_COLOR = AnsiColors.CYAN;
+    static final String ANNOTATION_COLOR = AnsiColors.GREEN;
+
+    private static final Set<String> C_LIKE_KEYWORDS = Set.of(
+            "abstract", "as", "assert", "async", "await", "boolean", "break", "byte", "case", "catch",
+            "char", "class", "const", "continue", "default", "delete", "do", "double", "else", "enum",
+            "export", "extends", "false", "final", "finally", "float", "for", "fun", "func", "function",
+            "go", "if", "implements", "import", "in", "instanceof", "int", "interface", "let", "long",
+            "match", "mut", "namespace", "new", "null", "package", "private", "protected", "pub",
+            "public", "record", "return", "short", "static", "struct", "super", "switch",
+            "synchronized", "this", "throw", "throws", "trait", "true", "try", "type", "typeof",
+            "val", "var", "void", "volatile", "while", "yield", "fn", "impl", "use", "defer",
+            "chan", "select", "range", "nil", "undefined", "from", "of", "sealed", "permits");
+    private static final Set<String> PYTHON_KEYWORDS = Set.of(
+            "and", "as", "assert", "async", "await", "break", "class", "continue", "def", "del",
+            "elif", "else", "except", "False", "finally", "for", "from", "global", "if", "import",
+            "in", "is", "lambda", "None", "nonlocal", "not", "or", "pass", "raise", "return", "True",
+            "try", "while", "with", "yield", "self");
+    private static final Set<String> SHELL_KEYWORDS = Set.of(
+            "if", "then", "else", "elif", "fi", "for", "while", "until", "do", "done", "case", "esac",
+            "in", "function", "return", "export", "local", "echo", "cd", "sudo");
+    private static final Set<String> SQL_KEYWORDS = Set.of(
+            "select", "from", "where", "insert", "into", "values", "update", "set", "delete",
+            "create", "table", "index", "drop", "alter", "join", "left", "right", "inner", "outer",
+            "on", "group", "by", "order", "having", "limit", "as", "and", "or", "not", "null", "is",
+            "in", "distinct", "union", "all", "primary", "key", "foreign", "references", "default",
+            "case", "when", "then", "else", "end", "exists", "like", "between", "asc", "desc");
+
+    private enum Family { C_LIKE, PYTHON, SHELL, SQL, PLAIN }
+
+    private final Family family;
+    private final Set<String> keywords;
+    // Delimiter of a comment or string still open at the end of the previous line
+    private String openDelimiter;
+
+    public SyntaxHighlighter(String language) {
+        this.family = familyOf(language);
+        switch (family) {
+            case PYTHON:
+                keywords = PYTHON_KEYWORDS;
+                break;
+            case SHELL:
+                keywords = SHELL_KEYWORDS;
+                break;
+            case SQL:
+                keywords = SQL_KEYWORDS;
+                break;
+            case C_LIKE:
+                keywords = C_LIKE_KEYWORDS;
+                break;
+            default:
+                keywords = Set.of();
+        }
+    }
+
+    private static Family familyOf(String language) {
+        String lang = language == null ? "" : language.trim().toLowerCase(Locale.ROOT);
+        switch (lang) {
+            case "java": case "kotlin": case "kt": case "scala": case "groovy": case "c": case "h":
+            case "cpp": case "c++": case "cc": case "cs": case "csharp": case "go": case "golang":
+            case "rust": case "rs": case "js": case "javascript": case "jsx": case "ts":
+            case "typescript": case "tsx": case "swift": case "dart": case "php": case "json":
+                return Family.C_LIKE;
+            case "python": case "py": case "ruby": case "rb": case "yaml": case "yml": case "toml":
+                return Family.PYTHON;
+            case "sh": case "bash": case "shell": case "zsh": case "console": case "dockerfile":
+                return Family.SHELL;
+            case "sql": case "mysql": case "postgresql": case "psql":
+                return Family.SQL;
+            default:
+                return Family.PLAIN;
+        }
+    }
+
+    /**
+     * Highlights one line of code (without its line terminator)
+     * @return the line with ANSI color codes
+     */
+    public String highlightLine(String line) {
+        StringBuilder out = new StringBuilder(line.length() + 32);
+        int i = 0;
+        int length = line.length();
+        if (openDelimiter != null) {
+            i = closeOpenSpan(line, 0, out);
+        }
+        while (i < length) {
+            char c = line.charAt(i);
+            if (family == Family.PLAIN) {
+                out.append(line, i, length);
+                break;
+            }
+            if (startsLineComment(line, i)) {
+                appendColored(out, line.substring(i), COMMENT_COLOR);
+                break;
+            }
+            if (family == Family.C_LIKE && line.startsWith("/*", i)) {
+                openDelimiter = "*/";
+                i = closeOpenSpan(line, i, out);
+            } else if (family == Family.PYTHON && (line.startsWith("\"\"\"", i) || line.startsWith("'''", i))) {
+                openDelimiter = line.substring(i, i + 3);
+                i = closeOpenSpan(line, i, out, 3);
+            } else if (c == '"' || c == '\'' || (c == '`' && family != Family.SQL)) {
+                int end = endOfString(line, i, c);
+                appendColored(out, line.substring(i, end), STRING_COLOR);
+                i = end;
+            } else if (Character.isDigit(c) && (i == 0 || !Character.isLetterOrDigit(line.charAt(i - 1)))) {
+                int end = i + 1;
+                while (end < length && (Character.isLetterOrDigit(line.charAt(end)) || line.charAt(end) == '.'
+                        || line.charAt(end) == '_')) {
+                    end++;
+                }
+                appendColored(out, line.substring(i, end), NUMBER_COLOR);
+                i = end;
+            } else if (c == '@' && family == Family.C_LIKE && i + 1 < length
+                    && Character.isJavaIdentifierStart(line.charAt(i + 1))) {
+                int end = endOfWord(line, i + 1);
+                appendColored(out, line.substring(i, end), ANNOTATION_COLOR);
+                i = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = endOfWord(line, i);
+                String word = line.substring(i, end);
+                String lookup = family == Family.SQL ? word.toLowerCase(Locale.ROOT) : word;
+                if (keywords.contains(lookup)) {
+                    appendColored(out, word, KEYWORD_COLOR);
+                } else if (family != Family.SQL && Character.isUpperCase(c) && word.length() > 1) {
+                    appendColored(out, word, TYPE_COLOR);
+                } else {
+                    out.append(word);
+                }
+                i = end;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private boolean startsLineComment(String line, int i) {
+        switch (family) {
+            case C_LIKE:
+                return line.startsWith("//", i);
+            case PYTHON:
+            case SHELL:
+                return line.charAt(i) == '#';
+            case SQL:
+                return line.startsWith("--", i);
+            default:
+                return false;
+        }
+    }
+
+    private int closeOpenSpan(String line, int from, StringBuilder out) {
+        return closeOpenSpan(line, from, out, openDelimiter.equals("*/") && from < line.length()
+                && line.startsWith("/*", from) ? 2 : 0);
+    }
+
+    /**
+     * Colors a block comment or triple-quoted string starting at {@code from} (skipping
+     * {@code skip} opening characters) up to its closing delimiter or the end of the line
+     */
+    private int closeOpenSpan(String line, int from, StringBuilder out, int skip) {
+        String color = openDelimiter.equals("*/") ? COMMENT_COLOR : STRING_COLOR;
+        int close = line.indexOf(openDelimiter, Math.min(line.length(), from + skip));
+        int end;
+        if (close < 0) {
+            end = line.length();
+        } else {
+            end = close + openDelimiter.length();
+            openDelimiter = null;
+        }
+        appendColored(out, line.substring(from, end), color);
+        return end;
+    }
+
+    private static int endOfString(String line, int start, char quote) {
+        int i = start + 1;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            }
+            i++;
+        }
+        return line.length();
+    }
+
+    private static int endOfWord(String line, int start) {
+        int i = start;
+        while (i < line.length() && Character.isJavaIdentifierPart(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void appendColored(StringBuilder out, String text, String color) {
+        if (!text.isEmpty()) {
+            out.append(color).append(text).append(AnsiColors.RESET);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.askquery.util;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates how many tokens Qwen models count for a text, without a tokenizer.
+ *
+ * The figures follow Qwen's byte-level BPE vocabulary: common Chinese and Japanese words
+ * are single tokens, so CJK text averages about 0.7 tokens per character; Latin words
+ * average about 4 characters per token; every digit is a token of its own; other
+ * punctuation and symbols are usually one token each. A space before a word is part of
+ * the word's token, while longer runs of whitespace (such as code indentation) are one
+ * token per run. Estimates are meant for budgeting prompts, not billing; the usage the
+ * API reports stays authoritative.
+ */
+public class TokenEstimator {
+
+    // Chat template tokens around each message: <|im_start|>role\n ... <|im_end|>\n
+    public static final int MESSAGE_OVERHEAD = 5;
+    // <|im_start|>assistant\n that primes the reply
+    public static final int REPLY_PRIMING = 3;
+
+    // Costs in tenths of a token, so the common cases add up without rounding each time
+    private static final int CJK_COST = 7;
+    private static final int LATIN_CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * Estimated token count of a text
+     * @return 0 for null or empty text
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (tenths(text, text.length()) + 9) / 10;
+    }
+
+    /**
+     * Estimated prompt tokens of a chat request: its messages with the chat template around them
+     */
+    public static int estimateMessages(List<Map<String, String>> messages) {
+        int tokens = REPLY_PRIMING;
+        for (Map<String, String> message : messages) {
+            tokens += estimateMessage(message.get("content"));
+        }
+        return tokens;
+    }
+
+    /**
+     * Estimated tokens of a single chat message including its template tokens
+     */
+    public static int estimateMessage(String content) {
+        return MESSAGE_OVERHEAD + estimate(content);
+    }
+
+    /**
+     * The longest prefix of a text estimated at no more than the given tokens, cut at a
+     * code point boundary
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        if (estimate(text) <= maxTokens) {
+            return text;
+        }
+        // The estimate only grows with the prefix length, so the cut can be found by bisection
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if ((tenths(text, mid) + 9) / 10 <= maxTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (low > 0 && Character.isHighSurrogate(text.charAt(low - 1))) {
+            low--;
+        }
+        return text.substring(0, low);
+    }
+
+    private static int tenths(String text, int end) {
+        int tenths = 0;
+        int word = 0;
+        int spaces = 0;
+        for (int i = 0; i < end; ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                tenths += wordTenths(word) + spaceTenths(spaces) + CJK_COST;
+                word = 0;
+                spaces = 0;
+            } else if (Character.isLetter(cp)) {
+                if (word == 0) {
+                    tenths += spaceTenths(spaces);
+                    spaces = 0;
+                }
+                word++;
+            } else if (Character.isWhitespace(cp)) {
+                tenths += wordTenths(word);
+                word = 0;
+                spaces++;
+            } else {
+                // Digits, punctuation and symbols
+                tenths += wordTenths(word) + spaceTenths(spaces) + 10;
+                word = 0;
+                spaces = 0;
+            }
+        }
+        return tenths + wordTenths(word) + spaceTenths(spaces);
+    }
+
+    private static int wordTenths(int letters) {
+        return letters == 0 ? 0 : (letters + LATIN_CHARS_PER_TOKEN - 1) / LATIN_CHARS_PER_TOKEN * 10;
+    }
+
+    private static int spaceTenths(int spaces) {
+        // A single space merges into the following word
+        return spaces > 1 ? 10 : 0;
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL
+                || (cp >= 0x3000 && cp <= 0x303F)
+                || (cp >= 0xFF00 && cp <= 0xFFEF);
+    }
+}
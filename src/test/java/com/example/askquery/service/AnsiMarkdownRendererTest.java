@@ -0,0 +1,84 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.AnsiColors;
+import com.example.askquery.util.AnsiMarkdownRenderer;
+import com.example.askquery.util.SyntaxHighlighter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnsiMarkdownRendererTest {
+
+    private static String strip(String ansi) {
+        return ansi.replaceAll("\u001B\\[[0-9;]*m", "");
+    }
+
+    @Test
+    public void given_headings_and_inline_markup_when_render_then_color_without_markdown_syntax() {
+        // When
+        String rendered = AnsiMarkdownRenderer.render("# Title\n\nSome **bold** and `code` with [link](https://example.com).\n");
+
+        // Then
+        assertTrue(rendered.contains(AnsiColors.GREEN_BOLD + "# Title"));
+        assertTrue(rendered.contains(AnsiColors.BOLD + "bold" + AnsiColors.RESET));
+        assertTrue(rendered.contains(AnsiColors.YELLOW + "code" + AnsiColors.RESET));
+        String plain = strip(rendered);
+        assertTrue(plain.contains("Some bold and code with link (https://example.com)."));
+        assertFalse(plain.contains("**"));
+    }
+
+    @Test
+    public void given_nested_lists_when_render_then_indent_with_markers() {
+        // When
+        String plain = strip(AnsiMarkdownRenderer.render("- one\n- two\n  1. inner\n  2. second\n"));
+
+        // Then
+        assertEquals(List.of("• one", "• two", "  1. inner", "  2. second"),
+                plain.lines().filter(line -> !line.isBlank()).toList());
+    }
+
+    @Test
+    public void given_table_with_cjk_text_when_render_then_align_columns_by_display_width() {
+        // When
+        String plain = strip(AnsiMarkdownRenderer.render("| Name | 描述 |\n|---|---|\n| map | 哈希表 |\n| list | x |\n"));
+
+        // Then
+        List<String> lines = plain.lines().filter(line -> !line.isBlank()).toList();
+        assertEquals("┌──────┬────────┐", lines.get(0));
+        assertEquals("│ Name │ 描述   │", lines.get(1));
+        assertEquals("├──────┼────────┤", lines.get(2));
+        assertEquals("│ map  │ 哈希表 │", lines.get(3));
+        assertEquals("│ list │ x      │", lines.get(4));
+        assertEquals("└──────┴────────┘", lines.get(5));
+    }
+
+    @Test
+    public void given_fenced_java_code_when_render_then_highlight_keywords_strings_and_comments() {
+        // When
+        String rendered = AnsiMarkdownRenderer.render("```java\npublic String greet() { // hi\n    return \"hello\";\n}\n```\n");
+
+        // Then
+        assertTrue(rendered.contains(AnsiColors.RED + "public" + AnsiColors.RESET));
+        assertTrue(rendered.contains(AnsiColors.CYAN + "String" + AnsiColors.RESET));
+        assertTrue(rendered.contains(AnsiColors.YELLOW + "\"hello\"" + AnsiColors.RESET));
+        assertTrue(rendered.contains(AnsiColors.BLACK_BOLD + "// hi" + AnsiColors.RESET));
+        assertTrue(strip(rendered).contains("┌─ java\n│ public String greet() { // hi\n│     return \"hello\";\n│ }\n└─"));
+    }
+
+    @Test
+    public void given_block_comment_across_lines_when_highlight_then_keep_comment_state() {
+        // Given
+        SyntaxHighlighter highlighter = new SyntaxHighlighter("java");
+
+        // When
+        String first = highlighter.highlightLine("int x = 1; /* start");
+        String second = highlighter.highlightLine("still comment */ return x;");
+
+        // Then
+        assertTrue(first.contains(AnsiColors.BLACK_BOLD + "/* start" + AnsiColors.RESET));
+        assertTrue(second.startsWith(AnsiColors.BLACK_BOLD + "still comment */" + AnsiColors.RESET));
+        assertTrue(second.contains(AnsiColors.RED + "return" + AnsiColors.RESET));
+    }
+}
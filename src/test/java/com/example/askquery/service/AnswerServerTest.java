@@ -0,0 +1,194 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnswerServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private AnswerServer server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private HttpResponse<String> get(String url) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HistoryManager historyManager() {
+        return new HistoryManager(tempDir.resolve("history.json").toString(), 100);
+    }
+
+    @Test
+    public void given_published_entry_when_requested_twice_then_render_once_and_serve_from_cache() throws Exception {
+        // Given
+        server = new AnswerServer(historyManager());
+        server.start(0);
+        String url = server.urlFor(new HistoryEntry("What is Java?", "**Java** 是一种语言"));
+
+        // When
+        HttpResponse<String> first = get(url);
+        HttpResponse<String> second = get(url);
+
+        // Then
+        assertTrue(url.startsWith("http://127.0.0.1:" + server.getPort() + "/answers/"));
+        assertEquals(200, first.statusCode());
+        assertEquals("text/html; charset=utf-8", first.headers().firstValue("Content-Type").orElse(""));
+        assertTrue(first.body().contains("<strong>Java</strong> 是一种语言"));
+        assertTrue(first.body().contains("href=\"/monokai.css\""));
+        assertEquals(first.body(), second.body());
+        assertEquals(1, server.cachedPages());
+    }
+
+    @Test
+    public void given_entry_only_in_history_when_requested_by_id_then_find_it() throws Exception {
+        // Given
+        HistoryManager historyManager = historyManager();
+        HistoryEntry entry = new HistoryEntry("What is Go?", "A language.");
+        historyManager.addEntry(entry);
+        server = new AnswerServer(historyManager);
+        server.start(0);
+        String base = "http://127.0.0.1:" + server.getPort();
+
+        // When
+        HttpResponse<String> page = get(base + "/answers/" + AnswerServer.idOf(entry));
+        HttpResponse<String> missing = get(base + "/answers/0000000000000000");
+        HttpResponse<String> stylesheet = get(base + "/monokai.css");
+
+        // Then
+        assertEquals(200, page.statusCode());
+        assertTrue(page.body().contains("A language."));
+        assertEquals(404, missing.statusCode());
+        assertEquals(200, stylesheet.statusCode());
+        assertTrue(stylesheet.body().contains("background-color: #272822"));
+    }
+
+    @Test
+    public void given_post_request_when_handled_then_reject_method() throws Exception {
+        // Given
+        server = new AnswerServer(historyManager());
+        server.start(0);
+
+        // When
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + server.getPort() + "/monokai.css"))
+                .POST(HttpRequest.BodyPublishers.ofString("x")).build(), HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertEquals(405, response.statusCode());
+    }
+
+    @Test
+    public void given_live_answer_when_streamed_then_send_blocks_and_done_as_events() throws Exception {
+        // Given
+        server = new AnswerServer(historyManager());
+        server.start(0);
+        LiveAnswer live = server.startLive("What is SSE?");
+        live.accept("# Server-sent events\n\nOne **way** str");
+        String url = server.liveUrlFor(live);
+
+        // When
+        HttpResponse<String> page = get(url);
+        CompletableFuture<HttpResponse<String>> events = http.sendAsync(
+                HttpRequest.newBuilder(URI.create(url + "/events")).build(), HttpResponse.BodyHandlers.ofString());
+        live.accept("eam\n\nDone.");
+        live.finish();
+        HttpResponse<String> stream = events.get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(200, page.statusCode());
+        assertTrue(page.body().contains("EventSource"));
+        assertTrue(page.body().contains("What is SSE?"));
+        assertEquals("text/event-stream; charset=utf-8", stream.headers().firstValue("Content-Type").orElse(""));
+        String body = stream.body();
+        assertTrue(body.contains("event: block\ndata: <h1>Server-sent events</h1>"));
+        assertTrue(body.contains("<strong>way</strong> stream"));
+        assertTrue(body.indexOf("Done.") < body.indexOf("event: done"));
+        assertTrue(body.endsWith("event: done\ndata: \n\n"));
+        assertEquals(404, get("http://127.0.0.1:" + server.getPort() + "/live/999").statusCode());
+    }
+
+    @Test
+    public void given_foreign_host_header_when_requested_then_reject_request() throws Exception {
+        // Given
+        server = new AnswerServer(historyManager());
+        server.start(0);
+        String path = server.urlFor(new HistoryEntry("What is Java?", "A language.")).replaceFirst("^http://[^/]+", "");
+
+        // When
+        String rebound = rawGet(path, "attacker.example:" + server.getPort());
+        String local = rawGet(path, "localhost:" + server.getPort());
+
+        // Then
+        assertTrue(rebound.startsWith("HTTP/1.1 403"), rebound);
+        assertTrue(local.startsWith("HTTP/1.1 200"), local);
+    }
+
+    private String rawGet(String path, String host) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nHost: " + host
+                    + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void given_many_published_entries_when_published_then_keep_latest_only() throws Exception {
+        // Given
+        HistoryManager historyManager = historyManager();
+        HistoryEntry first = new HistoryEntry("Question 0", "Answer 0");
+        historyManager.addEntry(first);
+        server = new AnswerServer(historyManager);
+        server.start(0);
+        String firstUrl = server.urlFor(first);
+
+        // When
+        for (int i = 1; i <= AnswerServer.MAX_PUBLISHED; i++) {
+            server.urlFor(new HistoryEntry("Question " + i, "Answer " + i));
+        }
+
+        // Then - the evicted entry is still found in the history
+        assertEquals(AnswerServer.MAX_PUBLISHED, server.publishedEntries());
+        assertTrue(get(firstUrl).body().contains("Answer 0"));
+    }
+
+    @Test
+    public void given_full_cache_when_put_then_evict_least_recently_used_page() {
+        // Given
+        AnswerServer.PageCache cache = new AnswerServer.PageCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.get("a");
+
+        // When
+        cache.put("c", new byte[4]);
+
+        // Then
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+}
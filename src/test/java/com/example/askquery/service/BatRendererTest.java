@@ -0,0 +1,99 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.BatRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+public class BatRendererTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PrintStream originalOut = System.out;
+
+    @AfterEach
+    public void tearDown() {
+        System.setOut(originalOut);
+        BatRenderer.setBatCommand("/usr/local/bin/bat");
+    }
+
+    /**
+     * A stand-in for bat that logs each invocation and echoes stdin when rendering
+     */
+    private Path fakeBat() throws Exception {
+        Path log = tempDir.resolve("calls.log");
+        Path script = tempDir.resolve("bat");
+        Files.writeString(script, String.join("\n",
+                "#!/bin/sh",
+                "echo \"$1\" >> '" + log + "'",
+                "case \"$1\" in",
+                "  --version) echo 'bat 0.24.0' ;;",
+                "  --list-themes) printf 'Dracula\\nMonokai Extended\\n' ;;",
+                "  *) for last; do :; done; [ \"$last\" = \"-\" ] || exit 2; cat ;;",
+                "esac",
+                ""));
+        assertTrue(script.toFile().setExecutable(true));
+        return script;
+    }
+
+    @Test
+    public void given_fake_bat_when_queried_repeatedly_then_probe_only_once() throws Exception {
+        // Given
+        Path bat = fakeBat();
+        BatRenderer.setBatCommand(bat.toString());
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertTrue(BatRenderer.isBatAvailable());
+            assertTrue(BatRenderer.isThemeAvailable("Monokai Extended"));
+        }
+
+        // Then
+        assertEquals("bat 0.24.0", BatRenderer.getVersion());
+        assertArrayEquals(new String[]{"Dracula", "Monokai Extended"}, BatRenderer.getAvailableThemes());
+        assertFalse(BatRenderer.isThemeAvailable("Solarized"));
+        assertEquals(List.of("--version", "--list-themes"), Files.readAllLines(tempDir.resolve("calls.log")));
+    }
+
+    @Test
+    public void given_fake_bat_when_render_then_pipe_content_through_stdin() throws Exception {
+        // Given
+        BatRenderer.setBatCommand(fakeBat().toString());
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        String markdown = "# Title\n\n" + "Line with 中文 text.\n".repeat(10000);
+
+        // When
+        boolean rendered = BatRenderer.renderToTerminal(markdown, "Dracula");
+
+        // Then
+        assertTrue(rendered);
+        assertEquals(markdown, captured.toString(StandardCharsets.UTF_8));
+        assertEquals(3, Files.readAllLines(tempDir.resolve("calls.log")).size()); // two probes, one render
+    }
+
+    @Test
+    public void given_missing_bat_when_render_then_report_unavailable() {
+        // Given
+        BatRenderer.setBatCommand(tempDir.resolve("no-such-bat").toString());
+
+        // When / Then
+        assertFalse(BatRenderer.isBatAvailable());
+        assertFalse(BatRenderer.renderToTerminal("# Title"));
+        assertEquals(0, BatRenderer.getAvailableThemes().length);
+        assertNull(BatRenderer.getVersion());
+    }
+}
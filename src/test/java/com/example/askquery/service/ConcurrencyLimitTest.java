@@ -0,0 +1,76 @@
+package com.example.askquery.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void given_healthy_calls_when_recorded_then_grow_limit_about_one_per_round() {
+        // Given
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 8, now::get);
+
+        // When - two rounds of two calls
+        for (int i = 0; i < 4; i++) {
+            limit.onSuccess(1000, 100);
+        }
+
+        // Then
+        assertEquals(3, limit.get());
+    }
+
+    @Test
+    public void given_slow_calls_when_recorded_then_stop_growing() {
+        // Given
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 8, now::get);
+        limit.onSuccess(1000, 100);
+
+        // When - ten times the latency per token
+        for (int i = 0; i < 10; i++) {
+            limit.onSuccess(10_000, 100);
+        }
+
+        // Then
+        assertEquals(2, limit.get());
+    }
+
+    @Test
+    public void given_throttling_when_recorded_then_halve_limit_once_per_interval() {
+        // Given
+        ConcurrencyLimit limit = new ConcurrencyLimit(8, 16, now::get);
+
+        // When
+        limit.onThrottled();
+        limit.onThrottled();
+        int afterBurst = limit.get();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(ConcurrencyLimit.DECREASE_INTERVAL_MILLIS));
+        limit.onThrottled();
+        limit.onThrottled();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(ConcurrencyLimit.DECREASE_INTERVAL_MILLIS));
+        limit.onThrottled();
+
+        // Then
+        assertEquals(4, afterBurst);
+        assertEquals(1, limit.get());
+    }
+
+    @Test
+    public void given_limit_when_set_then_clamp_to_bounds() {
+        // Given
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 4, now::get);
+
+        // When
+        limit.set(100);
+
+        // Then
+        assertEquals(4, limit.get());
+        limit.set(0);
+        assertEquals(1, limit.get());
+    }
+}
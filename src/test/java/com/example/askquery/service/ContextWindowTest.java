@@ -0,0 +1,174 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.ChatMessage;
+import com.example.askquery.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextWindowTest {
+
+    private final ContextWindow window = new ContextWindow();
+
+    @Test
+    public void given_latin_and_cjk_text_when_estimated_then_count_cjk_denser() {
+        // When
+        int latin = TokenEstimator.estimate("Java is a programming language");
+        int cjk = TokenEstimator.estimate("Java是一种编程语言");
+        int digits = TokenEstimator.estimate("2024");
+
+        // Then
+        assertEquals(8, latin);
+        assertEquals(6, cjk);
+        assertEquals(4, digits);
+        assertEquals(0, TokenEstimator.estimate(""));
+    }
+
+    @Test
+    public void given_long_text_when_truncated_then_fit_budget() {
+        // Given
+        String text = "中文和English混合的一段很长的文字。".repeat(50);
+
+        // When
+        String truncated = TokenEstimator.truncate(text, 40);
+
+        // Then
+        assertTrue(text.startsWith(truncated));
+        assertTrue(TokenEstimator.estimate(truncated) <= 40);
+        assertTrue(TokenEstimator.estimate(truncated) >= 38);
+    }
+
+    @Test
+    public void given_small_budget_when_fitted_then_drop_oldest_messages_first() {
+        // Given
+        window.add("user", "First question", 10);
+        window.add("assistant", "word ".repeat(400), 10);
+        window.add("user", "Second question", 10);
+        window.add("assistant", "Short answer", 10);
+
+        // When
+        ContextWindow.Prompt prompt = window.fit("System", "Third question", 10, 100);
+
+        // Then
+        List<Map<String, String>> messages = prompt.getMessages();
+        assertEquals("System", messages.get(0).get("content"));
+        assertEquals("Second question", messages.get(1).get("content"));
+        assertEquals("Short answer", messages.get(2).get("content"));
+        assertEquals("Third question", messages.get(3).get("content"));
+        assertEquals(4, messages.size());
+        assertEquals(2, prompt.getContextMessages());
+        assertEquals(4, prompt.getAvailableMessages());
+        assertEquals(TokenEstimator.estimateMessages(messages), prompt.getEstimatedTokens());
+    }
+
+    @Test
+    public void given_oldest_message_partly_fits_when_fitted_then_truncate_it() {
+        // Given
+        window.add("assistant", "word ".repeat(400), 10);
+        window.add("user", "Latest question", 10);
+
+        // When
+        ContextWindow.Prompt prompt = window.fit(null, "Next question", 10, 200);
+
+        // Then
+        List<Map<String, String>> messages = prompt.getMessages();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0).get("content").endsWith(ContextWindow.TRUNCATION_MARK));
+        assertTrue(prompt.getEstimatedTokens() <= 200);
+    }
+
+    @Test
+    public void given_message_limit_when_added_then_keep_latest_only() {
+        // When
+        window.add("user", "a", 2);
+        window.add("assistant", "b", 2);
+        window.add("user", "c", 2);
+
+        // Then
+        assertEquals(2, window.size());
+        assertEquals("b", window.fit(null, "d", 2, 0).getMessages().get(0).get("content"));
+        assertEquals(1, window.fit(null, "d", 0, 0).getMessages().size());
+    }
+
+    @Test
+    public void given_completed_fold_when_fitted_then_send_summary_instead_of_folded_messages() {
+        // Given
+        window.add("user", "Old question", 10);
+        window.add("assistant", "Old answer", 10);
+        window.add("user", "New question", 10);
+        ContextWindow.Fold fold = window.startFold(1);
+
+        // When
+        window.completeFold(fold, "Q: Old question");
+        ContextWindow.Prompt prompt = window.fit("System", "Next", 10, 0);
+
+        // Then
+        assertEquals(2, fold.getMessages().size());
+        assertEquals(1, window.size());
+        assertEquals("System\n\n" + ContextWindow.SUMMARY_HEADER + "Q: Old question",
+                prompt.getMessages().get(0).get("content"));
+        assertEquals("New question", prompt.getMessages().get(1).get("content"));
+        assertNull(window.startFold(1));
+    }
+
+    @Test
+    public void given_chain_copied_during_fold_when_completed_then_drop_folded_messages() {
+        // Given - twelve messages fill the chain up to twice the limit of six
+        for (int i = 1; i <= 12; i++) {
+            window.add("user", "Message " + i, 6);
+        }
+        ContextWindow.Fold fold = window.startFold(2);
+
+        // When - the next message makes the window copy its chain
+        window.add("user", "Message 13", 6);
+        window.completeFold(fold, "Q: Messages 7 to 10");
+        ContextWindow.Prompt prompt = window.fit("", "Next", 6, 0);
+
+        // Then
+        assertEquals(4, fold.getMessages().size());
+        assertEquals(3, window.size());
+        assertEquals(List.of(ContextWindow.SUMMARY_HEADER + "Q: Messages 7 to 10", "Message 11", "Message 12",
+                        "Message 13", "Next"),
+                prompt.getMessages().stream().map(m -> m.get("content")).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void given_prompts_built_in_turn_when_compared_then_share_messages_and_sdk_conversions() {
+        // Given
+        window.add("user", "First question", 10);
+        window.add("assistant", "First answer", 10);
+        ContextWindow.Prompt before = window.fit("System", "Second question", 10, 0);
+
+        // When
+        window.add(before.getQuestion(), 10);
+        window.add(ChatMessage.assistant("Second answer"), 10);
+        ContextWindow.Prompt after = window.fit("System", "Third question", 10, 0);
+
+        // Then
+        assertEquals(4, before.getMessages().size());
+        assertEquals(6, after.getMessages().size());
+        assertSame(before.getChatMessages().get(0), after.getChatMessages().get(0));
+        assertSame(before.getChatMessages().get(1), after.getChatMessages().get(1));
+        assertSame(before.getQuestion(), after.getChatMessages().get(3));
+        assertSame(before.getChatMessages().get(1).toSdkMessage(), after.getChatMessages().get(1).toSdkMessage());
+        assertEquals(Map.of("role", "user", "content", "First question"), after.getMessages().get(1));
+    }
+
+    @Test
+    public void given_many_messages_past_limit_when_added_then_keep_only_latest() {
+        // When
+        for (int i = 0; i < 25; i++) {
+            window.add("user", "q" + i, 4);
+        }
+
+        // Then
+        assertEquals(4, window.size());
+        List<Map<String, String>> messages = window.fit(null, "next", 4, 0).getMessages();
+        assertEquals("q21", messages.get(0).get("content"));
+        assertEquals("q24", messages.get(3).get("content"));
+    }
+}
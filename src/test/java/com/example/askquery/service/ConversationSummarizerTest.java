@@ -0,0 +1,106 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.ChatResult;
+import com.example.askquery.util.ExtractiveSummarizer;
+import com.example.askquery.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ConversationSummarizerTest {
+
+    private final ContextWindow window = new ContextWindow();
+
+    private void addRound(String question, String answer) {
+        window.add("user", question, 20);
+        window.add("assistant", answer, 20);
+    }
+
+    @Test
+    public void given_long_answer_when_summarized_locally_then_keep_question_and_key_sentences() {
+        // Given
+        String answer = "Garbage collection in Java reclaims unused objects automatically.\n\n"
+                + "```java\nSystem.gc();\n```\n\n"
+                + "The weather was nice today. G1 is the default garbage collection algorithm since Java 9. "
+                + "Collection pauses depend on the heap size.";
+
+        // When
+        String summary = ExtractiveSummarizer.summarize("", List.of(
+                Map.of("role", "user", "content", "How does garbage collection work in Java?"),
+                Map.of("role", "assistant", "content", answer)), 80);
+
+        // Then
+        assertTrue(summary.startsWith("Q: How does garbage collection work in Java?\nA: Garbage collection"));
+        assertFalse(summary.contains("System.gc"));
+        assertFalse(summary.contains("weather"));
+        assertTrue(TokenEstimator.estimate(summary) <= 80);
+    }
+
+    @Test
+    public void given_many_rounds_when_summarized_then_drop_oldest_rounds_from_summary() {
+        // Given
+        String summary = "";
+
+        // When
+        for (int i = 0; i < 30; i++) {
+            summary = ExtractiveSummarizer.summarize(summary, List.of(
+                    Map.of("role", "user", "content", "Question number " + i + " about topic" + i),
+                    Map.of("role", "assistant", "content", "Answer about topic" + i + " in detail.")), 120);
+        }
+
+        // Then
+        assertTrue(TokenEstimator.estimate(summary) <= 120);
+        assertTrue(summary.contains("topic29"));
+        assertFalse(summary.contains("topic0 "));
+    }
+
+    @Test
+    public void given_no_summary_model_when_summarized_then_fold_older_rounds_locally() {
+        // Given
+        DashscopeClient client = mock(DashscopeClient.class);
+        ConversationSummarizer summarizer = new ConversationSummarizer(window, client, "");
+        addRound("What is Rust?", "Rust is a systems programming language.");
+        addRound("What is Go?", "Go is a language from Google.");
+        addRound("What is Zig?", "Zig is a small language.");
+
+        // When
+        summarizer.summarizeNow();
+
+        // Then
+        assertEquals(ConversationSummarizer.KEEP_RECENT_MESSAGES, window.size());
+        assertTrue(window.getSummary().contains("Q: What is Rust?"));
+        assertTrue(window.getSummary().contains("systems programming"));
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    public void given_summary_model_when_summarized_then_use_model_and_fall_back_on_error() {
+        // Given
+        DashscopeClient client = mock(DashscopeClient.class);
+        when(client.send(anyList(), eq("qwen-turbo")))
+                .thenReturn(new ChatResult("User asked about Rust.", "stop", "id", 10, 5, null))
+                .thenReturn(ChatResult.failure("Throttling"));
+        ConversationSummarizer summarizer = new ConversationSummarizer(window, client, "qwen-turbo");
+        addRound("What is Rust?", "Rust is a systems programming language.");
+        addRound("What is Go?", "Go is a language from Google.");
+        addRound("What is Zig?", "Zig is a small language.");
+
+        // When
+        summarizer.summarizeNow();
+        String fromModel = window.getSummary();
+        addRound("What is Nim?", "Nim compiles to C.");
+        summarizer.summarizeNow();
+
+        // Then
+        assertEquals("User asked about Rust.", fromModel);
+        assertTrue(window.getSummary().startsWith("User asked about Rust."));
+        assertTrue(window.getSummary().contains("Q: What is Go?"));
+        verify(client, times(2)).send(anyList(), eq("qwen-turbo"));
+    }
+}
@@ -1,12 +1,28 @@
 package com.example.askquery.service;
 
+import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationOutput;
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.ResultCallback;
 import com.example.askquery.config.DashscopeProperties;
+import com.example.askquery.model.ChatResult;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.reactivex.Flowable;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DashscopeClientTest {
 
@@ -44,4 +60,196 @@ public class DashscopeClientTest {
         // Then
         assertEquals("", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void given_valid_messages_when_stream_messages_then_collect_tokens_into_result() {
+        // Given
+        DashscopeProperties props = new DashscopeProperties();
+        props.getApi().setKey(System.getenv("DASHSCOPE_API_KEY")); // Use actual properties
+        DashscopeClient dashscopeClient = new DashscopeClient(props);
+
+        List<Map<String, String>> messages = List.of(
+            Map.of("role", "user", "content", "Hello")
+        );
+        List<String> tokens = new ArrayList<>();
+
+        // When
+        ChatResult result = dashscopeClient.streamMessages(messages, "qwen-plus", tokens::add);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(String.join("", tokens), result.getText());
+        assertTrue(result.hasError() || !tokens.isEmpty());
+    }
+
+    @Test
+    public void given_timings_when_get_tokens_per_second_then_measure_from_first_token() {
+        // Given - first token after 500 ms, 100 tokens over the following 2 s
+        ChatResult answer = new ChatResult("text", "stop", "req-1", 10, 100, null).withTiming(500, 2500);
+
+        // When
+        double tokensPerSecond = answer.getTokensPerSecond();
+
+        // Then
+        assertEquals(50.0, tokensPerSecond, 0.001);
+        assertFalse(answer.hasError());
+    }
+
+    @Test
+    public void given_typed_result_when_to_json_then_extract_text_reads_same_answer() {
+        // Given
+        DashscopeClient dashscopeClient = new DashscopeClient(new DashscopeProperties());
+        ChatResult result = new ChatResult("Hello there", "stop", "req-1", 3, 2, null);
+
+        // When
+        JsonNode json = result.toJson();
+
+        // Then
+        assertEquals("Hello there", dashscopeClient.extractText(json));
+        assertEquals("req-1", json.path("request_id").asText());
+        assertEquals(5, json.path("usage").path("total_tokens").asInt());
+    }
+
+    @Test
+    public void given_failed_result_when_get_display_text_then_return_error_line() {
+        // Given
+        DashscopeClient dashscopeClient = new DashscopeClient(new DashscopeProperties());
+        ChatResult result = ChatResult.failure("Throttling");
+
+        // When / Then
+        assertTrue(result.hasError());
+        assertEquals("Error: Throttling", result.getDisplayText());
+        assertEquals("Error: Throttling", dashscopeClient.extractText(result.toJson()));
+    }
+
+    @Test
+    public void given_provider_errors_when_checked_then_recognize_throttling() {
+        // When / Then
+        assertTrue(ChatResult.failure("{\"statusCode\":429,\"code\":\"Throttling.RateQuota\"}").isThrottled());
+        assertTrue(ChatResult.failure("Requests rate limit exceeded").isThrottled());
+        assertFalse(ChatResult.failure("Request timed out after 120 s").isThrottled());
+        assertFalse(new ChatResult("ok", "stop", "id", 1, 1, null).isThrottled());
+    }
+
+    @Test
+    public void given_provider_errors_when_checked_then_retry_only_transient_ones() {
+        // When / Then
+        assertTrue(ChatResult.failure("{\"statusCode\":429,\"code\":\"Throttling\"}").isRetryable());
+        assertTrue(ChatResult.failure("{\"statusCode\":503,\"code\":\"ServiceUnavailable\"}").isRetryable());
+        assertTrue(ChatResult.failure("java.net.SocketTimeoutException: timeout").isRetryable());
+        assertTrue(ChatResult.failure("Connection reset").isRetryable());
+        assertFalse(ChatResult.failure("{\"statusCode\":400,\"code\":\"InvalidParameter\"}").isRetryable());
+        assertFalse(ChatResult.failure("Invalid API-key provided.").isRetryable());
+        assertFalse(new ChatResult("ok", "stop", "id", 1, 1, null).isRetryable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void given_primary_wins_when_hedge_still_queued_then_hedge_is_never_sent() throws Exception {
+        // Given - one slot, so the hedge queues behind the primary call
+        DashscopeProperties props = new DashscopeProperties();
+        props.setHedging(true);
+        props.setMaxConcurrency(1);
+        Generation generation = mock(Generation.class);
+        List<ResultCallback<GenerationResult>> callbacks = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            callbacks.add(invocation.getArgument(1));
+            return null;
+        }).when(generation).call(any(GenerationParam.class), any(ResultCallback.class));
+        DashscopeClient dashscopeClient = new DashscopeClient(props, generation);
+        for (int i = 0; i < LatencyTracker.MIN_SAMPLES; i++) {
+            dashscopeClient.latencies.record(10);
+        }
+
+        // When
+        CompletableFuture<ChatResult> future = dashscopeClient.sendMessagesAsync(
+                List.of(Map.of("role", "user", "content", "Hello")), "qwen-plus", Duration.ofSeconds(10));
+        Thread.sleep(200);
+        callbacks.get(0).onEvent(answer("Hi"));
+        callbacks.get(0).onComplete();
+        ChatResult result = future.get(5, TimeUnit.SECONDS);
+        Thread.sleep(200);
+
+        // Then
+        assertEquals("Hi", result.getText());
+        assertEquals(1, callbacks.size());
+        verify(generation, times(1)).call(any(GenerationParam.class), any(ResultCallback.class));
+        dashscopeClient.shutdown();
+    }
+
+    @Test
+    public void given_stream_running_past_timeout_when_timed_out_then_cancel_it_and_free_slot() throws Exception {
+        // Given - one slot, and a stream that never ends
+        DashscopeProperties props = new DashscopeProperties();
+        props.setMaxConcurrency(1);
+        props.setRequestTimeoutSeconds(1);
+        Generation generation = mock(Generation.class);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(generation.streamCall(any(GenerationParam.class)))
+                .thenReturn(Flowable.<GenerationResult>never().doOnCancel(() -> cancelled.set(true)))
+                .thenReturn(Flowable.just(answer("Hi")));
+        DashscopeClient dashscopeClient = new DashscopeClient(props, generation);
+        List<Map<String, String>> messages = List.of(Map.of("role", "user", "content", "Hello"));
+
+        // When
+        ChatResult timedOut = dashscopeClient.streamMessagesAsync(messages, "qwen-plus", null).get(5, TimeUnit.SECONDS);
+        ChatResult next = dashscopeClient.streamMessagesAsync(messages, "qwen-plus", null).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(timedOut.getError().contains("timed out"));
+        assertTrue(cancelled.get());
+        assertEquals("Hi", next.getText());
+        dashscopeClient.shutdown();
+    }
+
+    private static GenerationResult answer(String text) {
+        GenerationOutput.Choice choice = mock(GenerationOutput.Choice.class);
+        when(choice.getMessage()).thenReturn(Message.builder().role("assistant").content(text).build());
+        when(choice.getFinishReason()).thenReturn("stop");
+        GenerationOutput output = mock(GenerationOutput.class);
+        when(output.getChoices()).thenReturn(List.of(choice));
+        GenerationResult result = mock(GenerationResult.class);
+        when(result.getOutput()).thenReturn(output);
+        return result;
+    }
+
+    @Test
+    public void given_retries_when_backoff_computed_then_double_with_jitter_up_to_cap() {
+        // Given
+        DashscopeProperties props = new DashscopeProperties();
+        props.setRetryBaseDelayMillis(500);
+        DashscopeClient dashscopeClient = new DashscopeClient(props);
+
+        // When / Then
+        for (int i = 0; i < 50; i++) {
+            long first = dashscopeClient.backoffMillis(0);
+            long third = dashscopeClient.backoffMillis(2);
+            long late = dashscopeClient.backoffMillis(30);
+            assertTrue(first >= 250 && first <= 500, "first retry: " + first);
+            assertTrue(third >= 1000 && third <= 2000, "third retry: " + third);
+            assertTrue(late >= 10_000 && late <= 20_000, "capped retry: " + late);
+        }
+    }
+
+    @Test
+    public void given_valid_messages_when_send_messages_async_then_complete_with_result() throws Exception {
+        // Given
+        DashscopeProperties props = new DashscopeProperties();
+        props.getApi().setKey(System.getenv("DASHSCOPE_API_KEY")); // Use actual properties
+        DashscopeClient dashscopeClient = new DashscopeClient(props);
+        dashscopeClient.setMaxConcurrentRequests(1);
+
+        List<Map<String, String>> messages = List.of(
+            Map.of("role", "user", "content", "Hello")
+        );
+
+        // When
+        CompletableFuture<ChatResult> first = dashscopeClient.sendMessagesAsync(messages, "qwen-plus", Duration.ofSeconds(30));
+        CompletableFuture<ChatResult> second = dashscopeClient.sendMessagesAsync(messages, "qwen-plus", Duration.ofSeconds(30));
+
+        // Then - both complete normally even though only one may run at a time
+        assertNotNull(first.get(40, TimeUnit.SECONDS));
+        assertNotNull(second.get(40, TimeUnit.SECONDS));
+        dashscopeClient.shutdown();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void given_several_segments_when_get_by_id_then_read_entries_across_segments() throws Exception {
+        // Given
+        HistoryArchive archive = new HistoryArchive(tempDir.resolve("archive"));
+        archive.append(entries(0, 3));
+        archive.append(entries(3, 4));
+
+        // When / Then
+        assertEquals(7, archive.size());
+        assertEquals("Question 0", archive.get(0).getQuestion());
+        assertEquals("Question 2", archive.get(2).getQuestion());
+        assertEquals("Question 3", archive.get(3).getQuestion());
+        assertEquals("Answer 6 with 中文", archive.get(6).getAnswer());
+        assertThrows(IndexOutOfBoundsException.class, () -> archive.get(7));
+    }
+
+    @Test
+    public void given_existing_segments_when_reopen_then_page_through_entries() throws Exception {
+        // Given
+        Path dir = tempDir.resolve("archive");
+        HistoryArchive writer = new HistoryArchive(dir);
+        writer.append(entries(0, 5));
+        writer.append(entries(5, 5));
+
+        // When
+        HistoryArchive reopened = new HistoryArchive(dir);
+        List<HistoryEntry> page = reopened.page(4, 3);
+
+        // Then
+        assertEquals(10, reopened.size());
+        assertEquals(List.of("Question 4", "Question 5", "Question 6"),
+                page.stream().map(HistoryEntry::getQuestion).toList());
+        assertEquals(1, reopened.page(9, 5).size());
+    }
+
+    @Test
+    public void given_leftover_temporary_files_when_open_then_ignore_them() throws Exception {
+        // Given
+        Path dir = tempDir.resolve("archive");
+        new HistoryArchive(dir).append(entries(0, 2));
+        Files.writeString(dir.resolve("segment123.seg.tmp"), "{\"question\":\"torn");
+
+        // When
+        HistoryArchive archive = new HistoryArchive(dir);
+
+        // Then
+        assertEquals(2, archive.size());
+        assertEquals(0, new HistoryArchive(tempDir.resolve("missing")).size());
+    }
+
+    private static List<HistoryEntry> entries(int from, int count) {
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            entries.add(new HistoryEntry("Question " + i, "Answer " + i + " with 中文"));
+        }
+        return entries;
+    }
+}
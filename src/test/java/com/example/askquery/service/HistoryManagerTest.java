@@ -0,0 +1,339 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.model.QuestionMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void given_new_entries_when_add_entry_then_append_one_line_per_entry() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+
+        // When
+        historyManager.addEntry(new HistoryEntry("What is Java?", "A language.\nWith two lines."));
+        historyManager.addEntry(new HistoryEntry("What is Go?", "Another language."));
+
+        // Then
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        List<HistoryEntry> history = historyManager.loadHistory();
+        assertEquals(2, history.size());
+        assertEquals("What is Java?", history.get(0).getQuestion());
+        assertEquals("A language.\nWith two lines.", history.get(0).getAnswer());
+        assertEquals("What is Go?", history.get(1).getQuestion());
+    }
+
+    @Test
+    public void given_legacy_json_array_file_when_construct_then_migrate_to_line_format() throws Exception {
+        // Given
+        Path file = tempDir.resolve("legacy.json");
+        Files.writeString(file, "[ {\n  \"question\" : \"Q1\",\n  \"answer\" : \"A1\",\n  \"timestamp\" : \"2024-01-01T10:00:00\"\n},"
+                + " {\n  \"question\" : \"Q2\",\n  \"answer\" : \"A2\",\n  \"timestamp\" : \"2024-01-02T10:00:00\"\n} ]");
+
+        // When
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+
+        // Then
+        assertTrue(Files.exists(tempDir.resolve("legacy.json.bak")));
+        assertEquals(2, Files.readAllLines(file).size());
+        List<HistoryEntry> history = historyManager.loadHistory();
+        assertEquals("Q1", history.get(0).getQuestion());
+        assertEquals("A2", history.get(1).getAnswer());
+    }
+
+    @Test
+    public void given_more_entries_than_limit_when_compact_then_keep_latest_entries() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 3);
+        for (int i = 0; i < 5; i++) {
+            historyManager.addEntry(new HistoryEntry("Q" + i, "A" + i));
+        }
+
+        // When
+        List<HistoryEntry> beforeCompaction = historyManager.loadHistory();
+        historyManager.compact();
+
+        // Then
+        assertEquals(3, beforeCompaction.size());
+        assertEquals("Q2", beforeCompaction.get(0).getQuestion());
+        assertEquals(3, Files.readAllLines(file).size());
+        assertEquals("Q4", historyManager.loadHistory().get(2).getQuestion());
+    }
+
+    @Test
+    public void given_entries_older_than_max_age_when_load_history_then_skip_them() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100, 30);
+        HistoryEntry old = new HistoryEntry("Old question", "Old answer");
+        old.setTimestamp(LocalDateTime.now().minusDays(45).toString());
+        historyManager.addEntry(old);
+        historyManager.addEntry(new HistoryEntry("New question", "New answer"));
+
+        // When
+        List<HistoryEntry> history = historyManager.loadHistory();
+
+        // Then
+        assertEquals(1, history.size());
+        assertEquals("New question", history.get(0).getQuestion());
+    }
+
+    @Test
+    public void given_torn_last_line_when_add_and_load_then_skip_only_that_line() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+        Files.writeString(file, "{\"question\":\"Q2\",\"ans", java.nio.file.StandardOpenOption.APPEND);
+
+        // When
+        historyManager.addEntry(new HistoryEntry("Q3", "A3"));
+        List<HistoryEntry> history = historyManager.loadHistory();
+
+        // Then
+        assertEquals(2, history.size());
+        assertEquals("Q1", history.get(0).getQuestion());
+        assertEquals("Q3", history.get(1).getQuestion());
+    }
+
+    @Test
+    public void given_unchanged_file_when_load_history_twice_then_return_same_snapshot() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+
+        // When
+        List<HistoryEntry> first = historyManager.loadHistory();
+        List<HistoryEntry> second = historyManager.loadHistory();
+
+        // Then
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new HistoryEntry("Q", "A")));
+    }
+
+    @Test
+    public void given_snapshot_when_add_entry_then_update_snapshot_in_place() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 2);
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+        historyManager.addEntry(new HistoryEntry("Q2", "A2"));
+        List<HistoryEntry> before = historyManager.loadHistory();
+
+        // When
+        historyManager.addEntry(new HistoryEntry("Q3", "A3"));
+        List<HistoryEntry> after = historyManager.loadHistory();
+
+        // Then
+        assertEquals(2, before.size());
+        assertEquals("Q1", before.get(0).getQuestion());
+        assertEquals(2, after.size());
+        assertEquals("Q2", after.get(0).getQuestion());
+        assertEquals("Q3", after.get(1).getQuestion());
+    }
+
+    @Test
+    public void given_append_by_another_process_when_load_history_then_pick_up_new_entries() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+        assertEquals(1, historyManager.loadHistory().size());
+
+        // When - another writer appends a record and a partial one
+        Files.writeString(file, "{\"question\":\"Q2\",\"answer\":\"A2\"}\n{\"question\":\"Q3\"",
+                java.nio.file.StandardOpenOption.APPEND);
+        List<HistoryEntry> afterAppend = historyManager.loadHistory();
+        Files.writeString(file, ",\"answer\":\"A3\"}\n", java.nio.file.StandardOpenOption.APPEND);
+        List<HistoryEntry> afterCompletion = historyManager.loadHistory();
+
+        // Then
+        assertEquals(2, afterAppend.size());
+        assertEquals("Q2", afterAppend.get(1).getQuestion());
+        assertEquals(3, afterCompletion.size());
+        assertEquals("A3", afterCompletion.get(2).getAnswer());
+    }
+
+    @Test
+    public void given_file_replaced_by_another_process_when_load_history_then_reload() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+        historyManager.loadHistory();
+
+        // When
+        Path replacement = tempDir.resolve("replacement.json");
+        Files.writeString(replacement, "{\"question\":\"Other\",\"answer\":\"Answer\"}\n");
+        Files.move(replacement, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        List<HistoryEntry> history = historyManager.loadHistory();
+
+        // Then
+        assertEquals(1, history.size());
+        assertEquals("Other", history.get(0).getQuestion());
+    }
+
+    @Test
+    public void given_entries_evicted_by_size_limit_when_find_by_question_then_only_find_retained() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 2);
+        historyManager.loadHistory();
+
+        // When
+        historyManager.addEntry(new HistoryEntry("Q1", "A1"));
+        historyManager.addEntry(new HistoryEntry("Q2", "A2"));
+        historyManager.addEntry(new HistoryEntry("Q3", "A3"));
+
+        // Then
+        assertNull(historyManager.findByQuestion("Q1"));
+        assertEquals("A2", historyManager.findByQuestion("Q2").getAnswer());
+        assertEquals("A3", historyManager.findByQuestion("Q3").getAnswer());
+    }
+
+    @Test
+    public void given_existing_log_when_find_by_question_then_load_index_from_file() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        new HistoryManager(file.toString(), 100).addEntry(new HistoryEntry("What is Java?", "A language"));
+
+        // When
+        HistoryManager reopened = new HistoryManager(file.toString(), 100);
+
+        // Then
+        assertEquals("A language", reopened.findByQuestion("What is Java?").getAnswer());
+        assertNull(reopened.findByQuestion("What is Go?"));
+    }
+
+    @Test
+    public void given_variants_of_stored_question_when_find_match_then_report_exact_normalized_or_similar() {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.addEntry(new HistoryEntry("How do I reverse a linked list in Java?", "Flip the next pointers."));
+
+        // When
+        QuestionMatch exact = historyManager.findMatch("How do I reverse a linked list in Java?", 0.85);
+        QuestionMatch normalized = historyManager.findMatch("how do i reverse a linked list in java", 0.85);
+        QuestionMatch similar = historyManager.findMatch("How do you reverse a linked list in Java?", 0.75);
+        QuestionMatch disabled = historyManager.findMatch("How do you reverse a linked list in Java?", 0);
+
+        // Then
+        assertTrue(exact.isExact());
+        assertFalse(normalized.isExact());
+        assertEquals(1.0, normalized.getSimilarity());
+        assertNotNull(similar);
+        assertFalse(similar.isExact());
+        assertEquals("Flip the next pointers.", similar.getEntry().getAnswer());
+        assertNull(disabled);
+    }
+
+    @Test
+    public void given_aged_entries_in_small_log_when_reloaded_then_compact_them_into_archive() throws Exception {
+        // Given - far fewer lines than the count limit
+        Path file = tempDir.resolve("history.json");
+        HistoryManager writer = new HistoryManager(file.toString(), 100, 0);
+        HistoryEntry old = new HistoryEntry("Old question", "Old answer");
+        old.setTimestamp(LocalDateTime.now().minusDays(45).toString());
+        writer.addEntry(old);
+        writer.addEntry(new HistoryEntry("New question", "New answer"));
+
+        // When
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100, 30, true);
+        List<HistoryEntry> history = historyManager.loadHistory();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.readAllLines(file).size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // Then
+        assertEquals(1, history.size());
+        assertEquals(1, Files.readAllLines(file).size());
+        assertEquals(1, historyManager.getArchive().size());
+        assertEquals("Old question", historyManager.getArchive().get(0).getQuestion());
+    }
+
+    @Test
+    public void given_archiving_enabled_when_compact_then_move_evicted_entries_to_archive() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 3, 0, true);
+        for (int i = 0; i < 5; i++) {
+            historyManager.addEntry(new HistoryEntry("Question " + i, "Answer " + i));
+        }
+
+        // When
+        historyManager.compact();
+
+        // Then
+        assertEquals(3, historyManager.loadHistory().size());
+        HistoryArchive archive = historyManager.getArchive();
+        assertEquals(2, archive.size());
+        assertEquals("Question 0", archive.get(0).getQuestion());
+        assertEquals("Question 1", archive.get(1).getQuestion());
+        assertEquals(2, new HistoryArchive(tempDir.resolve("history.json.archive")).size());
+    }
+
+    @Test
+    public void given_compression_enabled_when_add_entry_then_store_long_answer_deflated() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.setAnswerCompression(true, false);
+        String answer = "## Streams\n\nUse `stream().map(...)` to transform elements.\n".repeat(20);
+
+        // When
+        historyManager.addEntry(new HistoryEntry("What are streams?", answer));
+        historyManager.addEntry(new HistoryEntry("Short?", "Yes."));
+
+        // Then
+        List<String> lines = Files.readAllLines(file);
+        assertTrue(lines.get(0).contains("\"answerDeflated\""));
+        assertFalse(lines.get(0).contains("\"answer\""));
+        assertTrue(lines.get(0).length() < answer.length() / 4);
+        assertTrue(lines.get(1).contains("\"answer\":\"Yes.\""));
+        HistoryManager reopened = new HistoryManager(file.toString(), 100);
+        assertEquals(answer, reopened.loadHistory().get(0).getAnswer());
+        assertEquals(answer, reopened.findByQuestion("What are streams?").getAnswer());
+    }
+
+    @Test
+    public void given_dictionary_enabled_when_compact_then_train_dictionary_and_compress_old_answers() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager plain = new HistoryManager(file.toString(), 100);
+        for (int i = 0; i < 60; i++) {
+            plain.addEntry(new HistoryEntry("Question " + i, "Here is an example implementation in Java: "
+                    + "```java public static void main(String[] args) { System.out.println(" + i + "); } ``` "
+                    + "This prints the number to standard output."));
+        }
+        HistoryManager historyManager = new HistoryManager(file.toString(), 100);
+        historyManager.setAnswerCompression(true, true);
+
+        // When
+        historyManager.compact();
+
+        // Then
+        assertTrue(Files.exists(tempDir.resolve("history.json.dict")));
+        assertTrue(Files.readAllLines(file).stream().allMatch(line -> line.contains("\"answerDeflated\"")));
+        HistoryManager reopened = new HistoryManager(file.toString(), 100);
+        reopened.setAnswerCompression(true, true);
+        assertTrue(reopened.loadHistory().get(59).getAnswer().contains("System.out.println(59)"));
+    }
+}
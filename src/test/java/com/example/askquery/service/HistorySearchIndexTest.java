@@ -0,0 +1,93 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistorySearchIndexTest {
+
+    @Test
+    public void given_mixed_text_when_tokenize_then_split_words_and_cjk_bigrams() {
+        assertEquals(List.of("java", "并发", "发编", "编程", "hashmap"),
+                HistorySearchIndex.tokenize("Java并发编程: HashMap?"));
+        assertEquals(List.of("锁", "jvm"), HistorySearchIndex.tokenize("锁 ＪＶＭ"));
+    }
+
+    @Test
+    public void given_entries_when_search_then_rank_by_relevance() {
+        // Given
+        HistorySearchIndex index = new HistorySearchIndex();
+        HistoryEntry passing = new HistoryEntry("Spring Boot basics", "Mentions java once.");
+        HistoryEntry focused = new HistoryEntry("Java generics", "Java generics add type safety to Java code.");
+        HistoryEntry other = new HistoryEntry("Python typing", "Type hints for Python.");
+        index.sync(List.of(passing, focused, other));
+
+        // When
+        List<HistoryEntry> results = index.search("java", 10);
+
+        // Then
+        assertEquals(List.of(focused, passing), results);
+        assertTrue(index.search("java kotlin", 10).isEmpty());
+    }
+
+    @Test
+    public void given_chinese_entries_when_search_chinese_phrase_then_match_by_bigrams() {
+        // Given
+        HistorySearchIndex index = new HistorySearchIndex();
+        HistoryEntry concurrency = new HistoryEntry("Java并发编程入门", "线程池和锁");
+        HistoryEntry collections = new HistoryEntry("Java集合框架", "HashMap与ArrayList");
+        index.sync(List.of(concurrency, collections));
+
+        // When / Then
+        assertEquals(List.of(concurrency), index.search("并发编程", 10));
+        assertEquals(List.of(collections), index.search("集合", 10));
+        assertEquals(List.of(concurrency), index.search("锁", 10));
+    }
+
+    @Test
+    public void given_changed_snapshot_when_sync_then_index_new_and_drop_evicted_entries() {
+        // Given
+        HistorySearchIndex index = new HistorySearchIndex();
+        HistoryEntry old = new HistoryEntry("Old Java question", "answer");
+        HistoryEntry kept = new HistoryEntry("Kept Java question", "answer");
+        index.sync(List.of(old, kept));
+        HistoryEntry added = new HistoryEntry("New Java question", "answer");
+
+        // When
+        index.sync(List.of(kept, added));
+
+        // Then
+        List<HistoryEntry> results = index.search("java", 10);
+        assertEquals(2, results.size());
+        assertFalse(results.contains(old));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void given_many_evictions_when_sync_then_compact_and_keep_results() {
+        // Given
+        HistorySearchIndex index = new HistorySearchIndex();
+        List<HistoryEntry> window = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            window.add(new HistoryEntry("Question " + i + " about Java", "Answer " + i));
+            if (window.size() > 100) {
+                window.remove(0);
+            }
+            if (i % 50 == 0) {
+                index.sync(new ArrayList<>(window));
+            }
+        }
+
+        // When
+        index.sync(new ArrayList<>(window));
+
+        // Then
+        assertEquals(100, index.size());
+        assertEquals(List.of(window.get(window.size() - 1)), index.search("4999", 10));
+        assertEquals(10, index.search("java", 10).size());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.IncrementalHtmlRenderer;
+import com.example.askquery.util.MarkdownRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalHtmlRendererTest {
+
+    private final IncrementalHtmlRenderer renderer = new IncrementalHtmlRenderer();
+
+    private List<String> stream(String markdown, int tokenLength) {
+        List<String> blocks = new ArrayList<>();
+        for (int i = 0; i < markdown.length(); i += tokenLength) {
+            blocks.addAll(renderer.accept(markdown.substring(i, Math.min(markdown.length(), i + tokenLength))));
+        }
+        return blocks;
+    }
+
+    @Test
+    public void given_paragraph_in_progress_when_streaming_then_only_preview_it() {
+        // When
+        List<String> blocks = stream("Some **bold** text", 4);
+
+        // Then
+        assertTrue(blocks.isEmpty());
+        assertTrue(renderer.tail().contains("<strong>bold</strong>"));
+    }
+
+    @Test
+    public void given_blocks_when_streamed_then_fragments_match_whole_document() {
+        // Given
+        String markdown = "# Title\n\nFirst *para*\ncontinued\n\n```java\nint x = 1;\n\nint y = 2;\n```\n\n- a\n- b\n";
+
+        // When
+        List<String> blocks = stream(markdown, 3);
+        blocks.addAll(renderer.finish());
+
+        // Then
+        assertEquals(4, blocks.size());
+        assertTrue(blocks.get(0).contains("<h1>Title</h1>"));
+        assertTrue(blocks.get(1).contains("<em>para</em>"));
+        assertTrue(blocks.get(2).contains("int y = 2;"));
+        assertEquals(MarkdownRenderer.convertMarkdownToHtml(markdown).replaceAll("\\s", ""),
+                String.join("", blocks).replaceAll("\\s", ""));
+    }
+
+    @Test
+    public void given_open_code_fence_when_previewed_then_render_partial_code() {
+        // Given
+        stream("```\nline one\nline", 5);
+
+        // When
+        String tail = renderer.tail();
+
+        // Then
+        assertTrue(tail.contains("<code>"));
+        assertTrue(tail.contains("line one"));
+        assertEquals("", new IncrementalHtmlRenderer().tail());
+    }
+}
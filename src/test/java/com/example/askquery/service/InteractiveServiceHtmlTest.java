@@ -4,6 +4,7 @@ import com.example.askquery.config.AppProperties;
 import com.example.askquery.config.DashscopeProperties;
 import com.example.askquery.util.MarkdownRenderer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.lang.reflect.Method;
@@ -36,6 +37,30 @@ public class InteractiveServiceHtmlTest {
         assertTrue(htmlContent.contains(question)); // Contains the question
     }
 
+    @Test
+    public void given_answer_when_export_page_then_link_shared_stylesheet_written_once(@TempDir Path tempDir) throws Exception {
+        // Given
+        Path stylesheet = tempDir.resolve(MarkdownRenderer.STYLESHEET_FILE);
+        Path first = tempDir.resolve("first.html");
+        Path second = tempDir.resolve("nested").resolve("second.html");
+
+        // When
+        MarkdownRenderer.exportMonokaiPage(first, "What is <Java>?", "**Java** 是一种语言", stylesheet);
+        long written = Files.getLastModifiedTime(stylesheet).toMillis();
+        MarkdownRenderer.exportMonokaiPage(second, "What is Go?", "Another `language`.", stylesheet);
+
+        // Then
+        assertTrue(Files.readString(stylesheet).contains("background-color: #272822"));
+        assertEquals(written, Files.getLastModifiedTime(stylesheet).toMillis());
+        String firstPage = Files.readString(first);
+        assertTrue(firstPage.contains("<link rel=\"stylesheet\" href=\"monokai.css\">"));
+        assertFalse(firstPage.contains("#272822"));
+        assertTrue(firstPage.contains("<title>What is &lt;Java&gt;?</title>"));
+        assertTrue(firstPage.contains("<strong>Java</strong> 是一种语言"));
+        assertTrue(Files.readString(second).contains("href=\"../monokai.css\""));
+        assertTrue(Files.readString(second).contains("<p>Another <code>language</code>.</p>"));
+    }
+
     @Test
     public void given_dangerous_html_input_when_escape_html_then_return_escaped_output() throws Exception {
         // Given
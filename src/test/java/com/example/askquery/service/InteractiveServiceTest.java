@@ -2,16 +2,26 @@ package com.example.askquery.service;
 
 import com.example.askquery.config.AppProperties;
 import com.example.askquery.config.DashscopeProperties;
+import com.example.askquery.model.ChatResult;
+import org.jline.reader.LineReader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class InteractiveServiceTest {
@@ -132,10 +142,10 @@ public class InteractiveServiceTest {
     }
 
     @Test
-    public void given_question_and_answer_when_save_question_to_file_then_create_directory_and_file() throws Exception {
+    public void given_question_and_answer_when_write_question_file_then_create_directory_and_file() throws Exception {
         // Use reflection to access private method
         InteractiveService service = new InteractiveService(appProps, dashProps, client);
-        Method method = InteractiveService.class.getDeclaredMethod("saveQuestionToFile", String.class, String.class);
+        Method method = InteractiveService.class.getDeclaredMethod("writeQuestionFile", String.class, String.class);
         method.setAccessible(true);
 
         // Given
@@ -159,14 +169,19 @@ public class InteractiveServiceTest {
         }
 
         // When
-        method.invoke(service, question, answer);
+        Object written = method.invoke(service, question, answer);
 
         // Then
+        assertEquals(Boolean.TRUE, written);
         assertTrue(Files.exists(dirPath));
         assertTrue(Files.isDirectory(dirPath));
         
-        // Check that at least one file was created
-        java.util.List<Path> files = Files.list(dirPath).toList();
+        // Check that a page was created in a monthly subdirectory and listed in the index
+        assertTrue(Files.exists(dirPath.resolve("monokai.css")));
+        assertTrue(Files.readString(dirPath.resolve("index.html")).contains(question));
+        java.util.List<Path> files = Files.walk(dirPath)
+            .filter(path -> path.toString().endsWith(".html") && !path.getParent().equals(dirPath))
+            .toList();
         assertFalse(files.isEmpty());
         
         // Check content of one of the files
@@ -189,10 +204,10 @@ public class InteractiveServiceTest {
     }
 
     @Test
-    public void given_system_message_configured_when_build_messages_then_include_system_message() throws Exception {
+    public void given_system_message_configured_when_build_prompt_then_include_system_message() throws Exception {
         // Use reflection to access private method
         InteractiveService service = new InteractiveService(appProps, dashProps, client);
-        Method method = InteractiveService.class.getDeclaredMethod("buildMessages", String.class);
+        Method method = InteractiveService.class.getDeclaredMethod("buildPrompt", String.class);
         method.setAccessible(true);
 
         // Given
@@ -200,9 +215,8 @@ public class InteractiveServiceTest {
         appProps.setContextLength(2);
 
         // When
-        @SuppressWarnings("unchecked")
         java.util.List<java.util.Map<String, String>> messages = 
-            (java.util.List<java.util.Map<String, String>>) method.invoke(service, "User message");
+            ((ContextWindow.Prompt) method.invoke(service, "User message")).getMessages();
 
         // Then
         assertTrue(messages.size() >= 2); // At least system message and user message
@@ -213,10 +227,10 @@ public class InteractiveServiceTest {
     }
 
     @Test
-    public void given_no_system_message_when_build_messages_then_exclude_system_message() throws Exception {
+    public void given_no_system_message_when_build_prompt_then_exclude_system_message() throws Exception {
         // Use reflection to access private method
         InteractiveService service = new InteractiveService(appProps, dashProps, client);
-        Method method = InteractiveService.class.getDeclaredMethod("buildMessages", String.class);
+        Method method = InteractiveService.class.getDeclaredMethod("buildPrompt", String.class);
         method.setAccessible(true);
 
         // Given
@@ -224,9 +238,8 @@ public class InteractiveServiceTest {
         appProps.setContextLength(0);
 
         // When
-        @SuppressWarnings("unchecked")
         java.util.List<java.util.Map<String, String>> messages = 
-            (java.util.List<java.util.Map<String, String>>) method.invoke(service, "User message");
+            ((ContextWindow.Prompt) method.invoke(service, "User message")).getMessages();
 
         // Then
         assertEquals(1, messages.size()); // Only user message
@@ -282,4 +295,51 @@ public class InteractiveServiceTest {
         InteractiveService service = new InteractiveService(appProps, dashProps, client);
         assertNotNull(service);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void given_same_question_in_flight_when_submitted_again_in_parallel_mode_then_ask_once(@TempDir Path tempDir) throws Exception {
+        // Given
+        appProps.setHistoryFile(tempDir.resolve("history.json").toString());
+        appProps.setParallel(true);
+        CompletableFuture<ChatResult> answer = new CompletableFuture<>();
+        when(client.sendMessagesAsync(anyList(), eq("qwen-plus"))).thenReturn(answer);
+        InteractiveService service = new InteractiveService(appProps, dashProps, client);
+        Method submit = InteractiveService.class.getDeclaredMethod("submitAndMaybeWait",
+                String.class, String.class, LineReader.class, List.class);
+        submit.setAccessible(true);
+
+        // When
+        submit.invoke(service, "What is Java?", tempDir.resolve("cmd").toString(), null, List.of("exit"));
+        submit.invoke(service, "what is java", tempDir.resolve("cmd").toString(), null, List.of("exit"));
+        answer.complete(new ChatResult("A language.", "stop", "id", 10, 3, null));
+        submit.invoke(service, "What is Rust?", tempDir.resolve("cmd").toString(), null, List.of("exit"));
+
+        // Then
+        verify(client, times(2)).sendMessagesAsync(anyList(), eq("qwen-plus"));
+    }
+
+    @Test
+    public void given_streamed_answer_cut_off_by_error_when_asked_again_then_not_served_from_history(@TempDir Path tempDir) throws Exception {
+        // Given
+        appProps.setHistoryFile(tempDir.resolve("history.json").toString());
+        appProps.setStreaming(true);
+        appProps.setRenderer("plain");
+        when(client.streamMessages(anyList(), eq("qwen-plus"), any()))
+                .thenReturn(new ChatResult("Java is a", null, "id", 10, 3, "Connection reset"));
+        InteractiveService service = new InteractiveService(appProps, dashProps, client);
+        Method submit = InteractiveService.class.getDeclaredMethod("submitAndMaybeWait",
+                String.class, String.class, LineReader.class, List.class);
+        submit.setAccessible(true);
+
+        Field sideEffects = InteractiveService.class.getDeclaredField("sideEffects");
+        sideEffects.setAccessible(true);
+
+        // When
+        submit.invoke(service, "What is Java?", tempDir.resolve("cmd").toString(), null, List.of("exit"));
+        ((SideEffectPipeline) sideEffects.get(service)).flush(5, TimeUnit.SECONDS);
+        submit.invoke(service, "What is Java?", tempDir.resolve("cmd").toString(), null, List.of("exit"));
+
+        // Then
+        verify(client, times(2)).streamMessages(anyList(), eq("qwen-plus"), any());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.askquery.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyTrackerTest {
+
+    private final LatencyTracker tracker = new LatencyTracker();
+
+    @Test
+    public void given_few_samples_when_percentile_then_return_unknown() {
+        // Given
+        for (int i = 0; i < LatencyTracker.MIN_SAMPLES - 1; i++) {
+            tracker.record(100);
+        }
+
+        // When / Then
+        assertEquals(-1, tracker.percentile(0.95));
+    }
+
+    @Test
+    public void given_samples_when_percentile_then_return_latency_most_calls_stay_within() {
+        // Given
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i * 10L);
+        }
+
+        // When / Then
+        assertEquals(950, tracker.percentile(0.95));
+        assertEquals(500, tracker.percentile(0.5));
+        assertEquals(1000, tracker.percentile(1));
+    }
+
+    @Test
+    public void given_full_buffer_when_more_recorded_then_forget_oldest_samples() {
+        // Given
+        for (int i = 0; i < LatencyTracker.CAPACITY; i++) {
+            tracker.record(5000);
+        }
+
+        // When
+        for (int i = 0; i < LatencyTracker.CAPACITY; i++) {
+            tracker.record(100);
+        }
+
+        // Then
+        assertEquals(100, tracker.percentile(0.95));
+    }
+}
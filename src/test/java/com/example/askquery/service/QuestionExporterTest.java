@@ -0,0 +1,68 @@
+package com.example.askquery.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuestionExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void given_answer_when_export_then_write_page_in_monthly_directory() throws Exception {
+        // Given
+        QuestionExporter exporter = new QuestionExporter(tempDir);
+        String month = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+
+        // When
+        Path page = exporter.export("What is Java?", "**Java** is a language.");
+
+        // Then
+        assertEquals(tempDir.resolve(month), page.getParent());
+        String html = Files.readString(page);
+        assertTrue(html.contains("<strong>Java</strong>"));
+        assertTrue(html.contains("href=\"../monokai.css\""));
+        assertTrue(Files.exists(exporter.getStylesheet()));
+    }
+
+    @Test
+    public void given_several_answers_when_export_then_append_one_index_item_each() throws Exception {
+        // Given
+        QuestionExporter exporter = new QuestionExporter(tempDir);
+        exporter.export("What is Java?", "A language.");
+        String header = Files.readString(exporter.getIndex());
+
+        // When
+        exporter.export("What is <Go>?", "Another language.");
+        exporter.export("What is Java?", "A revised answer.");
+
+        // Then
+        String index = Files.readString(exporter.getIndex());
+        assertTrue(index.startsWith(header));
+        List<String> items = index.lines().filter(line -> line.startsWith("<li>")).toList();
+        assertEquals(2, items.size());
+        assertTrue(items.get(1).contains(">What is &lt;Go&gt;?</a>"));
+        assertTrue(index.contains("<ul class=\"index\">"));
+    }
+
+    @Test
+    public void given_existing_index_when_new_exporter_then_do_not_list_page_again() throws Exception {
+        // Given
+        new QuestionExporter(tempDir).export("What is Java?", "A language.");
+
+        // When
+        new QuestionExporter(tempDir).export("What is Java?", "A language.");
+
+        // Then
+        assertEquals(1, Files.readString(tempDir.resolve(QuestionExporter.INDEX_FILE)).lines()
+                .filter(line -> line.startsWith("<li>")).count());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuestionIndexTest {
+
+    @Test
+    public void given_indexed_entries_when_find_then_return_latest_answer_for_question() {
+        // Given
+        HistoryEntry first = new HistoryEntry("What is Java?", "Old answer");
+        HistoryEntry second = new HistoryEntry("What is Java?", "New answer");
+        QuestionIndex index = QuestionIndex.build(List.of(first, second), 100);
+
+        // When
+        HistoryEntry found = index.find("What is Java?");
+
+        // Then
+        assertSame(second, found);
+        assertNull(index.find("What is Go?"));
+        assertSame(second, index.find("  what IS java")); // normalized match
+    }
+
+    @Test
+    public void given_unanswered_entry_when_put_then_not_indexed() {
+        // Given
+        QuestionIndex index = new QuestionIndex(100);
+
+        // When
+        index.put(new HistoryEntry("Pending question", null));
+
+        // Then
+        assertNull(index.find("Pending question"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void given_removed_entry_when_find_then_return_null() {
+        // Given
+        HistoryEntry entry = new HistoryEntry("What is Java?", "A language");
+        QuestionIndex index = QuestionIndex.build(List.of(entry), 100);
+
+        // When
+        index.remove(new HistoryEntry("What is Java?", "A different entry")); // not the indexed one
+        HistoryEntry stillThere = index.find("What is Java?");
+        index.remove(entry);
+
+        // Then
+        assertSame(entry, stillThere);
+        assertNull(index.find("What is Java?"));
+    }
+
+    @Test
+    public void given_many_entries_when_probe_unknown_questions_then_bloom_filter_rejects_most() {
+        // Given
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            entries.add(new HistoryEntry("Question number " + i, "Answer " + i));
+        }
+        QuestionIndex index = QuestionIndex.build(entries, 5000);
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (index.mightContain("Unknown question " + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        for (int i = 0; i < 5000; i += 500) {
+            assertTrue(index.mightContain("Question number " + i));
+        }
+        assertTrue(falsePositives < 500, "False positive rate too high: " + falsePositives);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.askquery.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void given_requests_per_minute_when_burst_used_up_then_space_out_requests() {
+        // Given - 60 requests per minute allow a burst of 10
+        RateLimiter limiter = new RateLimiter(60, 0, now::get);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.reserve(0));
+        }
+
+        // When
+        long eleventh = limiter.reserve(0);
+        long twelfth = limiter.reserve(0);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        long afterPause = limiter.reserve(0);
+
+        // Then
+        assertEquals(TimeUnit.SECONDS.toNanos(1), eleventh);
+        assertEquals(TimeUnit.SECONDS.toNanos(2), twelfth);
+        assertEquals(0, afterPause);
+    }
+
+    @Test
+    public void given_tokens_per_minute_when_usage_exceeds_estimate_then_delay_next_request() {
+        // Given - 6000 tokens per minute allow a burst of 1000
+        RateLimiter limiter = new RateLimiter(0, 6000, now::get);
+        assertEquals(0, limiter.reserve(500));
+
+        // When
+        limiter.settle(500, 1600);
+        long wait = limiter.reserve(100);
+
+        // Then - 700 tokens of debt at 100 tokens per second
+        assertEquals(TimeUnit.SECONDS.toNanos(7), wait);
+        assertTrue(limiter.isEnabled());
+        assertFalse(new RateLimiter(0, 0).isEnabled());
+        assertEquals(0, new RateLimiter(0, 0).reserve(1_000_000));
+    }
+
+    @Test
+    public void given_call_not_billed_when_settled_then_refund_estimate() {
+        // Given - 6000 tokens per minute allow a burst of 1000
+        RateLimiter limiter = new RateLimiter(0, 6000, now::get);
+        assertEquals(0, limiter.reserve(1000));
+
+        // When
+        limiter.settle(1000, -1);
+        long unknownUsage = limiter.reserve(500);
+        limiter.settle(500, 0);
+        limiter.settle(1000, 0);
+
+        // Then - unknown usage keeps the estimate, a call that was not billed gives it back
+        assertEquals(TimeUnit.SECONDS.toNanos(5), unknownUsage);
+        assertEquals(0, limiter.reserve(1000));
+    }
+}
@@ -26,7 +26,7 @@ public class SearchHistoryServiceTest {
     }
 
     @Test
-    public void given_matching_keywords_when_search_history_then_return_matching_entries() {
+    public void given_matching_keywords_when_search_history_then_rank_question_hits_before_answer_hits() {
         // Given
         List<HistoryEntry> mockEntries = Arrays.asList(
             new HistoryEntry("How to use Java streams?", "Java streams provide functional programming capabilities..."),
@@ -40,9 +40,10 @@ public class SearchHistoryServiceTest {
         List<HistoryEntry> results = searchHistoryService.searchHistory("Java");
 
         // Then
-        assertEquals(2, results.size());
-        assertTrue(results.stream().anyMatch(entry -> entry.getQuestion().contains("Java streams")));
-        assertTrue(results.stream().anyMatch(entry -> entry.getQuestion().contains("Java collections")));
+        assertEquals(3, results.size());
+        assertTrue(results.subList(0, 2).stream().anyMatch(entry -> entry.getQuestion().contains("Java streams")));
+        assertTrue(results.subList(0, 2).stream().anyMatch(entry -> entry.getQuestion().contains("Java collections")));
+        assertEquals("What is Spring Boot?", results.get(2).getQuestion()); // matched in the answer only
         verify(historyManager).loadHistory();
     }
 
@@ -61,8 +62,9 @@ public class SearchHistoryServiceTest {
         List<HistoryEntry> results = searchHistoryService.searchHistory("Java Spring");
 
         // Then
-        assertEquals(1, results.size());
+        assertEquals(2, results.size());
         assertEquals("Java Spring tutorial", results.get(0).getQuestion());
+        assertEquals("What is Spring Boot?", results.get(1).getQuestion());
         verify(historyManager).loadHistory();
     }
 
@@ -141,4 +143,28 @@ public class SearchHistoryServiceTest {
         assertEquals(1, results2.size());
         assertEquals(results1.get(0).getQuestion(), results2.get(0).getQuestion());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void given_quoted_fragment_or_regex_when_search_history_then_match_substrings() {
+        // Given
+        List<HistoryEntry> mockEntries = Arrays.asList(
+            new HistoryEntry("How does ConcurrentHashMap#compute work?", "It is atomic per key."),
+            new HistoryEntry("Stack trace help", "at com.example.App.run(App.java:42)")
+        );
+
+        when(historyManager.loadHistory()).thenReturn(mockEntries);
+
+        // When
+        List<HistoryEntry> quoted = searchHistoryService.searchHistory("\"HashMap#comp\"");
+        List<HistoryEntry> regex = searchHistoryService.searchHistory("/App\\.java:\\d+/");
+        List<HistoryEntry> fallback = searchHistoryService.searchHistory("example.App.ru");
+
+        // Then
+        assertEquals(1, quoted.size());
+        assertEquals("How does ConcurrentHashMap#compute work?", quoted.get(0).getQuestion());
+        assertEquals(1, regex.size());
+        assertEquals("Stack trace help", regex.get(0).getQuestion());
+        assertEquals(1, fallback.size()); // no word match, retried as a substring
+        assertEquals("Stack trace help", fallback.get(0).getQuestion());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SideEffectPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void given_many_entries_when_flush_then_append_all_in_order() throws Exception {
+        // Given
+        Path file = tempDir.resolve("history.json");
+        HistoryManager historyManager = new HistoryManager(file.toString(), 1000);
+        SideEffectPipeline pipeline = new SideEffectPipeline(historyManager);
+
+        // When
+        for (int i = 0; i < 300; i++) {
+            pipeline.addHistory(new HistoryEntry("Question " + i, "Answer " + i));
+        }
+
+        // Then
+        assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(300, lines.size());
+        List<HistoryEntry> history = historyManager.loadHistory();
+        for (int i = 0; i < 300; i++) {
+            assertEquals("Question " + i, history.get(i).getQuestion());
+        }
+    }
+
+    @Test
+    public void given_slow_file_task_when_add_history_then_history_is_not_held_up() throws Exception {
+        // Given
+        HistoryManager historyManager = new HistoryManager(tempDir.resolve("history.json").toString(), 100);
+        SideEffectPipeline pipeline = new SideEffectPipeline(historyManager);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        // When
+        pipeline.addHistory(new HistoryEntry("What is Java?", "A language."));
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5000;
+        while (historyManager.loadHistory().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, historyManager.loadHistory().size());
+        assertFalse(pipeline.flush(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(pipeline.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void given_file_tasks_when_closed_then_run_queued_tasks_in_order_and_later_ones_inline() {
+        // Given
+        SideEffectPipeline pipeline = new SideEffectPipeline(
+                new HistoryManager(tempDir.resolve("history.json").toString(), 100));
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            pipeline.submit(() -> log.add("task " + n + " on " + Thread.currentThread().getName()));
+        }
+
+        // When
+        assertTrue(pipeline.close(5, TimeUnit.SECONDS));
+        pipeline.submit(() -> log.add("late on " + Thread.currentThread().getName()));
+
+        // Then
+        assertEquals(6, log.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("task " + i + " on file-worker", log.get(i));
+        }
+        assertEquals("late on " + Thread.currentThread().getName(), log.get(5));
+    }
+}
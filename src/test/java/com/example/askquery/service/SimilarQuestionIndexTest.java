@@ -0,0 +1,78 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import com.example.askquery.model.QuestionMatch;
+import com.example.askquery.util.QuestionNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimilarQuestionIndexTest {
+
+    @Test
+    public void given_case_punctuation_and_full_width_variants_when_normalize_then_fold_to_same_text() {
+        assertEquals("what is a jvm", QuestionNormalizer.normalize("What is a JVM?"));
+        assertEquals("what is a jvm", QuestionNormalizer.normalize("  what   is a jvm "));
+        assertEquals("what is a jvm", QuestionNormalizer.normalize("Ｗｈａｔ　ｉｓ　ａ　ＪＶＭ？"));
+        assertEquals("什么是jvm", QuestionNormalizer.normalize("什么是ＪＶＭ？"));
+        assertEquals("c# vs c++", QuestionNormalizer.normalize("C# vs. C++"));
+    }
+
+    @Test
+    public void given_near_duplicate_question_when_find_similar_then_return_match_above_threshold() {
+        // Given
+        HistoryEntry entry = new HistoryEntry("How do I reverse a linked list in Java?", "Iterate and flip pointers...");
+        HistoryEntry other = new HistoryEntry("What is Spring Boot?", "A framework...");
+        SimilarQuestionIndex index = SimilarQuestionIndex.build(List.of(entry, other));
+
+        // When
+        QuestionMatch match = index.findSimilar("How do you reverse a linked list in Java", 0.75);
+
+        // Then
+        assertNotNull(match);
+        assertSame(entry, match.getEntry());
+        assertFalse(match.isExact());
+        assertTrue(match.getSimilarity() >= 0.75 && match.getSimilarity() < 1.0);
+    }
+
+    @Test
+    public void given_unrelated_question_when_find_similar_then_return_null() {
+        // Given
+        SimilarQuestionIndex index = SimilarQuestionIndex.build(List.of(
+                new HistoryEntry("How do I reverse a linked list in Java?", "Iterate and flip pointers...")));
+
+        // When / Then
+        assertNull(index.findSimilar("How do I sort a map by value in Python?", 0.8));
+    }
+
+    @Test
+    public void given_question_differing_only_in_version_when_find_similar_then_return_null() {
+        // Given
+        HistoryEntry java = new HistoryEntry("What is new in Java 17?", "Sealed classes...");
+        HistoryEntry python = new HistoryEntry("python 3.11 vs 3.12", "Faster startup...");
+        SimilarQuestionIndex index = SimilarQuestionIndex.build(List.of(java, python));
+
+        // When / Then
+        assertNull(index.findSimilar("What is new in Java 11?", 0.5));
+        assertNull(index.findSimilar("python 3.11 vs 3.13", 0.5));
+        assertNull(index.findSimilar("What is new in Java?", 0.5));
+        QuestionMatch match = index.findSimilar("what's new in java 17", 0.5);
+        assertNotNull(match);
+        assertSame(java, match.getEntry());
+    }
+
+    @Test
+    public void given_removed_entry_when_find_similar_then_not_returned() {
+        // Given
+        HistoryEntry entry = new HistoryEntry("How do I reverse a linked list in Java?", "Iterate and flip pointers...");
+        SimilarQuestionIndex index = SimilarQuestionIndex.build(List.of(entry));
+
+        // When
+        index.remove(entry);
+
+        // Then
+        assertNull(index.findSimilar("How do I reverse a linked list in Java", 0.8));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.askquery.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String> flights = new SingleFlight<>();
+
+    @Test
+    public void given_call_in_flight_when_joined_with_same_key_then_share_its_result() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        SingleFlight.Flight<String> first = flights.join("q", () -> {
+            calls.incrementAndGet();
+            return answer;
+        });
+
+        // When
+        SingleFlight.Flight<String> second = flights.join("q", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        SingleFlight.Flight<String> different = flights.join("r", () -> CompletableFuture.completedFuture("r"));
+        answer.complete("a");
+
+        // Then
+        assertFalse(first.isShared());
+        assertTrue(second.isShared());
+        assertFalse(different.isShared());
+        assertEquals("a", second.getResult().get());
+        assertEquals(1, calls.get());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void given_completed_call_when_joined_again_then_start_new_call() throws Exception {
+        // Given
+        flights.join("q", () -> CompletableFuture.completedFuture("first"));
+
+        // When
+        SingleFlight.Flight<String> again = flights.join("q", () -> CompletableFuture.completedFuture("second"));
+
+        // Then
+        assertFalse(again.isShared());
+        assertEquals("second", again.getResult().get());
+    }
+
+    @Test
+    public void given_call_that_fails_to_start_when_joined_then_unregister_key() {
+        // When
+        assertThrows(IllegalStateException.class, () -> flights.join("q", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        // Then
+        assertEquals(0, flights.size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.askquery.service;
+
+import com.example.askquery.util.AnsiMarkdownRenderer;
+import com.example.askquery.util.StreamingMarkdownRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingMarkdownRendererTest {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final StreamingMarkdownRenderer renderer =
+            new StreamingMarkdownRenderer(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+    private String printed() {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String strip(String ansi) {
+        return ansi.replaceAll("\u001B\\[[0-9;]*m", "");
+    }
+
+    private void stream(String markdown, int tokenLength) {
+        for (int i = 0; i < markdown.length(); i += tokenLength) {
+            renderer.accept(markdown.substring(i, Math.min(markdown.length(), i + tokenLength)));
+        }
+    }
+
+    @Test
+    public void given_paragraph_in_progress_when_streaming_then_hold_it_until_blank_line() {
+        // When
+        stream("Some **bold", 3);
+
+        // Then
+        assertEquals("", printed());
+
+        // When
+        stream("** text\n\nNext", 3);
+
+        // Then
+        assertEquals(AnsiMarkdownRenderer.render("Some **bold** text\n"), printed());
+        assertFalse(strip(printed()).contains("Next"));
+    }
+
+    @Test
+    public void given_code_fence_when_streaming_then_commit_each_line_as_it_completes() {
+        // When
+        stream("```java\nint x = 1;\n", 2);
+
+        // Then
+        assertEquals("┌─ java\n│ int x = 1;\n", strip(printed()));
+
+        // When
+        stream("return x;\n```\n", 2);
+
+        // Then
+        assertEquals(AnsiMarkdownRenderer.render("```java\nint x = 1;\nreturn x;\n```\n"), printed());
+    }
+
+    @Test
+    public void given_list_items_when_streaming_then_commit_previous_item_when_next_starts() {
+        // When
+        stream("- one\n- two\n", 1);
+
+        // Then
+        assertEquals("• one\n", strip(printed()));
+
+        // When
+        stream("  1. inner\n", 1);
+        renderer.finish();
+
+        // Then
+        assertEquals(List.of("• one", "• two", "  1. inner"),
+                strip(printed()).lines().filter(line -> !line.isBlank()).toList());
+    }
+
+    @Test
+    public void given_table_when_streaming_then_commit_rows_with_header_widths() {
+        // When
+        stream("| Name | 描述 |\n|----|------|\n| map | 哈希表 |\n", 4);
+
+        // Then
+        List<String> lines = strip(printed()).lines().toList();
+        assertEquals(List.of("┌──────┬────────┐", "│ Name │ 描述   │", "├──────┼────────┤", "│ map  │ 哈希表 │"), lines);
+
+        // When
+        renderer.finish();
+
+        // Then
+        assertTrue(strip(printed()).endsWith("└──────┴────────┘\n\n"));
+    }
+
+    @Test
+    public void given_whole_document_when_streamed_token_by_token_then_match_batch_rendering() {
+        // Given
+        String markdown = "# Title\n\nIntro with `code`.\n\n```python\ndef f():\n    return 1\n```\n\n> quoted\n\nTail";
+
+        // When
+        stream(markdown, 1);
+        renderer.finish();
+
+        // Then
+        assertEquals(AnsiMarkdownRenderer.render(markdown), printed());
+    }
+}
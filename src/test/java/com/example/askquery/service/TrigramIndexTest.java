@@ -0,0 +1,81 @@
+package com.example.askquery.service;
+
+import com.example.askquery.model.HistoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    private final HistoryEntry compute = new HistoryEntry("How does ConcurrentHashMap#compute work?",
+            "It runs the remapping function atomically per key.");
+    private final HistoryEntry trace = new HistoryEntry("Why does my app crash?",
+            "Exception in thread \"main\" java.lang.NullPointerException\n\tat com.example.App.run(App.java:42)");
+    private final HistoryEntry streams = new HistoryEntry("Java streams", "Use Collectors.groupingBy to group.");
+
+    @Test
+    public void given_code_fragment_when_search_substring_then_match_ignoring_case() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        index.sync(List.of(compute, trace, streams));
+
+        // When / Then
+        assertEquals(List.of(compute), index.searchSubstring("concurrenthashmap#compute", 10));
+        assertEquals(List.of(trace), index.searchSubstring("at com.example.App.run(App.java", 10));
+        assertEquals(List.of(streams), index.searchSubstring("By", 10)); // shorter than a trigram
+        assertTrue(index.searchSubstring("HashMap#merge", 10).isEmpty());
+    }
+
+    @Test
+    public void given_regex_when_search_regex_then_verify_candidates_most_recent_first() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        index.sync(List.of(compute, trace, streams));
+
+        // When / Then
+        assertEquals(List.of(trace), index.searchRegex("App\\.java:\\d+", 10));
+        assertEquals(List.of(streams, compute), index.searchRegex("group|remapping", 10));
+        assertThrows(PatternSyntaxException.class, () -> index.searchRegex("(unclosed", 10));
+    }
+
+    @Test
+    public void given_regex_when_required_literals_then_keep_only_mandatory_runs() {
+        assertEquals(List.of("App.java:"), TrigramIndex.requiredLiterals("App\\.java:\\d+"));
+        assertEquals(List.of("colo", "r"), TrigramIndex.requiredLiterals("colou?r"));
+        assertEquals(List.of("hash", "map"), TrigramIndex.requiredLiterals("hash(ed)?map"));
+        assertTrue(TrigramIndex.requiredLiterals("foo|bar").isEmpty());
+    }
+
+    @Test
+    public void given_character_escapes_when_search_regex_then_break_literal_runs_at_them() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        index.sync(List.of(compute, trace, streams));
+
+        // When / Then
+        assertEquals(List.of("foo", "bar"), TrigramIndex.requiredLiterals("foo\\x41bar"));
+        assertEquals(List.of("foo", "bar"), TrigramIndex.requiredLiterals("foo\\u0041bar"));
+        assertEquals(List.of("foo", "bar"), TrigramIndex.requiredLiterals("foo\\0101bar"));
+        assertEquals(List.of("foo", "bar"), TrigramIndex.requiredLiterals("foo\\x{41}bar\\p{Lu}"));
+        assertEquals(List.of(streams), index.searchRegex("grouping\\x42y", 10));
+        assertEquals(List.of(streams), index.searchRegex("Collectors\\u002EgroupingBy", 10));
+    }
+
+    @Test
+    public void given_evicted_entry_when_sync_then_not_found() {
+        // Given
+        TrigramIndex index = new TrigramIndex();
+        index.sync(List.of(compute, trace));
+
+        // When
+        index.sync(List.of(trace, streams));
+
+        // Then
+        assertTrue(index.searchSubstring("remapping", 10).isEmpty());
+        assertEquals(List.of(streams), index.searchSubstring("groupingBy", 10));
+        assertEquals(2, index.size());
+    }
+}